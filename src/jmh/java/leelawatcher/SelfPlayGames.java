@@ -0,0 +1,154 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher;
+
+import com.google.common.io.Resources;
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.parser.AutoGtpTokenizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark fixture that supplies the 19x19 self-play games recorded in the
+ * bundled autogtp log. Games are split the same way the watcher splits them:
+ * a move after anything other than a move starts a new game.
+ */
+public final class SelfPlayGames {
+
+  public static final String LOG = "autogtp-selfplay.log";
+
+  private static final Pattern MOVE_EVENT =
+      Pattern.compile("\\s*\\d+\\s*\\((?:[BW]\\s)?(\\w+)\\)\\s*");
+
+  private static final PointOfPlay PASS = PointOfPlay.of(Move.PASS, Move.PASS);
+
+  private SelfPlayGames() {
+  }
+
+  /**
+   * A board part way through one of the games.
+   */
+  public static class Snapshot {
+    public final Board board;
+    public final PointOfPlay lastMove;
+    public final PointOfPlay nextMove;
+
+    Snapshot(Board board, PointOfPlay lastMove, PointOfPlay nextMove) {
+      this.board = board;
+      this.lastMove = lastMove;
+      this.nextMove = nextMove;
+    }
+  }
+
+  /**
+   * Read the games from the bundled log.
+   *
+   * @return one list of moves per game, passes and resignations are
+   * represented by a point at (Move.PASS, Move.PASS).
+   */
+  public static List<List<PointOfPlay>> load() throws IOException {
+    byte[] output = Resources.toByteArray(Resources.getResource(LOG));
+    AutoGtpTokenizer tokenizer = new AutoGtpTokenizer();
+    tokenizer.feed(output, 0, output.length);
+
+    List<List<PointOfPlay>> games = new ArrayList<>();
+    List<PointOfPlay> game = null;
+    String event;
+    while ((event = tokenizer.nextEvent()) != null) {
+      Matcher m = MOVE_EVENT.matcher(event);
+      if (m.matches()) {
+        if (game == null) {
+          game = new ArrayList<>();
+          games.add(game);
+        }
+        game.add(parseMove(m.group(1)));
+      } else {
+        game = null;
+      }
+    }
+    return games;
+  }
+
+  /**
+   * Play the first moves of a game on a fresh board.
+   *
+   * @param moves the game
+   * @param count how many of its moves to play
+   * @return the board after the moves have been played
+   */
+  public static Board replay(List<PointOfPlay> moves, int count) throws IllegalMoveException {
+    return replay(new Board(), moves, count);
+  }
+
+  /**
+   * Play the first moves of a game on the supplied board.
+   *
+   * @param board a board with no moves played
+   * @param moves the game
+   * @param count how many of its moves to play
+   * @return the board after the moves have been played
+   */
+  public static Board replay(Board board, List<PointOfPlay> moves, int count)
+      throws IllegalMoveException {
+    for (int i = 0; i < count; i++) {
+      PointOfPlay p = moves.get(i);
+      board.doMove(p.getX(), p.getY());
+    }
+    return board;
+  }
+
+  /**
+   * Boards at regular intervals through each game, skipping any point at
+   * which the last or next move is a pass.
+   *
+   * @param games    the games to sample
+   * @param interval the number of moves between snapshots
+   */
+  public static List<Snapshot> snapshots(List<List<PointOfPlay>> games, int interval)
+      throws IllegalMoveException {
+    List<Snapshot> snapshots = new ArrayList<>();
+    for (List<PointOfPlay> game : games) {
+      for (int n = interval; n < game.size(); n += interval) {
+        PointOfPlay last = game.get(n - 1);
+        PointOfPlay next = game.get(n);
+        if (Move.isPass(last.getX(), last.getY()) || Move.isPass(next.getX(), next.getY())) {
+          continue;
+        }
+        snapshots.add(new Snapshot(replay(game, n), last, next));
+      }
+    }
+    return snapshots;
+  }
+
+  private static PointOfPlay parseMove(String move) {
+    if ("pass".equals(move) || "resign".equals(move)) {
+      return PASS;
+    }
+    int x = Character.toLowerCase(move.charAt(0)) - 'a';
+    // gtp coordinates skip the letter I
+    if (x > 8) {
+      x--;
+    }
+    return PointOfPlay.of(x, Integer.parseInt(move.substring(1)) - 1);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+import leelawatcher.SelfPlayGames;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the bundled self-play games through {@link Board#doMove}. The
+ * primary score is full replays of every game per second, and the
+ * <code>moves</code> secondary result is moves per second. The
+ * <code>trackGroups</code> parameter selects between finding captures by
+ * flood fill and the incremental {@link GroupTracker}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BoardBenchmark {
+
+  @Param({"false", "true"})
+  public boolean trackGroups;
+
+  private List<List<PointOfPlay>> games;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Throughput {
+    public long moves;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      moves = 0;
+    }
+  }
+
+  @Setup
+  public void loadGames() throws IOException {
+    games = SelfPlayGames.load();
+  }
+
+  @Benchmark
+  public int doMove(Throughput throughput) throws IllegalMoveException {
+    int captures = 0;
+    for (List<PointOfPlay> game : games) {
+      Board board = SelfPlayGames.replay(new Board(trackGroups), game, game.size());
+      captures += board.getBlackHasCap() + board.getWhiteHasCap();
+      throughput.moves += game.size();
+    }
+    return captures;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+import leelawatcher.SelfPlayGames;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the memory held by the moves of the bundled self-play games as
+ * {@link Move} objects and as a {@link MoveTree}, and the time to walk
+ * them. Run with <code>-prof gc</code>: as the building benchmarks keep
+ * everything they allocate, <code>gc.alloc.rate.norm</code> is the bytes
+ * the trees of all the games hold, plus for <code>moveTreeGrowing</code>
+ * the arrays discarded as the tree grew.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MoveTreeBenchmark {
+
+  private List<List<PointOfPlay>> games;
+  private List<Move> moves = new ArrayList<>();
+  private List<MoveTree> trees = new ArrayList<>();
+
+  @Setup
+  public void loadGames() throws IOException {
+    games = SelfPlayGames.load();
+    moves = buildMoves();
+    trees = buildMoveTrees(true);
+  }
+
+  @Benchmark
+  public List<Move> moves() {
+    return buildMoves();
+  }
+
+  /**
+   * Trees created with room for exactly the moves of their game.
+   */
+  @Benchmark
+  public List<MoveTree> moveTree() {
+    return buildMoveTrees(true);
+  }
+
+  /**
+   * Trees created with the default capacity, which grow as moves are added.
+   */
+  @Benchmark
+  public List<MoveTree> moveTreeGrowing() {
+    return buildMoveTrees(false);
+  }
+
+  @Benchmark
+  public void walkMoves(Blackhole bh) {
+    for (Move root : moves) {
+      for (Move move = root; move.numChildren() > 0; ) {
+        move = move.next(0);
+        bh.consume(move.getX() + move.getY());
+      }
+    }
+  }
+
+  @Benchmark
+  public void walkMoveTree(Blackhole bh) {
+    for (MoveTree tree : trees) {
+      for (int node = MoveTree.ROOT; tree.numChildren(node) > 0; ) {
+        node = tree.next(node);
+        bh.consume(tree.getX(node) + tree.getY(node));
+      }
+    }
+  }
+
+  private List<Move> buildMoves() {
+    List<Move> roots = new ArrayList<>(games.size());
+    for (List<PointOfPlay> game : games) {
+      Move root = new Move();
+      Move move = root;
+      char color = Move.MOVE_BLACK;
+      for (PointOfPlay p : game) {
+        move = new Move(p.getX(), p.getY(), color, move);
+        color = color == Move.MOVE_BLACK ? Move.MOVE_WHITE : Move.MOVE_BLACK;
+      }
+      roots.add(root);
+    }
+    return roots;
+  }
+
+  private List<MoveTree> buildMoveTrees(boolean sized) {
+    List<MoveTree> built = new ArrayList<>(games.size());
+    for (List<PointOfPlay> game : games) {
+      MoveTree tree = sized ? new MoveTree(game.size() + 1) : new MoveTree();
+      int node = MoveTree.ROOT;
+      char color = Move.MOVE_BLACK;
+      for (PointOfPlay p : game) {
+        node = tree.addMove(node, p.getX(), p.getY(), color);
+        color = color == Move.MOVE_BLACK ? Move.MOVE_WHITE : Move.MOVE_BLACK;
+      }
+      built.add(tree);
+    }
+    return built;
+  }
+}
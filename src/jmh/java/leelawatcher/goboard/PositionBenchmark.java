@@ -0,0 +1,84 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+import leelawatcher.SelfPlayGames;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building positions from moves and enumerating groups, using
+ * the moves and mid game positions of the bundled self-play games.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PositionBenchmark {
+
+  private List<Position> previous = new ArrayList<>();
+  private List<Move> moves = new ArrayList<>();
+  private List<MarkablePosition> positions = new ArrayList<>();
+  private List<PointOfPlay> lastMoves = new ArrayList<>();
+
+  @Setup
+  public void loadGames() throws IOException, IllegalMoveException {
+    List<List<PointOfPlay>> games = SelfPlayGames.load();
+    for (List<PointOfPlay> game : games) {
+      Board board = new Board();
+      Move parent = new Move();
+      for (PointOfPlay p : game) {
+        char color = board.isWhiteMove() ? Move.MOVE_WHITE : Move.MOVE_BLACK;
+        previous.add(board.getCurrPos());
+        parent = new Move(p.getX(), p.getY(), color, parent);
+        moves.add(parent);
+        board.doMove(p.getX(), p.getY());
+      }
+    }
+    for (SelfPlayGames.Snapshot s : SelfPlayGames.snapshots(games, 25)) {
+      positions.add(new MarkablePosition(s.board.getCurrPos()));
+      lastMoves.add(s.lastMove);
+    }
+  }
+
+  /**
+   * Build the position that follows each move of every game from the
+   * position that preceded it.
+   */
+  @Benchmark
+  public void construction(Blackhole bh) {
+    for (int i = 0; i < moves.size(); i++) {
+      bh.consume(new Position(previous.get(i), moves.get(i)));
+    }
+  }
+
+  /**
+   * Enumerate the group containing the last stone played in each snapshot.
+   */
+  @Benchmark
+  public void getGroupSet(Blackhole bh) {
+    for (int i = 0; i < positions.size(); i++) {
+      bh.consume(positions.get(i).getGroupSet(lastMoves.get(i), null, 19));
+    }
+  }
+}
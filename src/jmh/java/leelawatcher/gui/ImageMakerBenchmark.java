@@ -0,0 +1,101 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.gui;
+
+import leelawatcher.SelfPlayGames;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing a board part way through a game, as the board view does
+ * after every move. Runs without a display.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ImageMakerBenchmark {
+
+  private static final int PIXELS = 500;
+
+  private ImageMaker imageMaker;
+  private Position position;
+  private Position afterMove;
+  private List<Rectangle> changed = new ArrayList<>();
+  private BufferedImage screen;
+  private Graphics2D screenGraphics;
+
+  @Setup
+  public void setUp() throws IOException, IllegalMoveException {
+    imageMaker = new ImageMaker();
+    List<SelfPlayGames.Snapshot> snapshots = SelfPlayGames.snapshots(SelfPlayGames.load(), 150);
+    SelfPlayGames.Snapshot snapshot = snapshots.get(0);
+    position = snapshot.board.getCurrPos();
+    snapshot.board.doMove(snapshot.nextMove.getX(), snapshot.nextMove.getY());
+    afterMove = snapshot.board.getCurrPos();
+    for (PointOfPlay p : BoardView.changedPoints(position, afterMove, 19)) {
+      changed.add(imageMaker.stoneBounds(PIXELS, 19, p.getX(), p.getY()));
+    }
+    screen = new BufferedImage(PIXELS, PIXELS, BufferedImage.TYPE_INT_RGB);
+    screenGraphics = screen.createGraphics();
+  }
+
+  @TearDown
+  public void tearDown() {
+    screenGraphics.dispose();
+  }
+
+  /**
+   * A new image of the board, as BoardView used to request on every paint.
+   */
+  @Benchmark
+  public void paintBoardImage(Blackhole bh) {
+    bh.consume(imageMaker.paintBoard(PIXELS, 19, position));
+  }
+
+  /**
+   * Stones drawn straight onto the component over the cached empty board.
+   */
+  @Benchmark
+  public void paintBoardOnGraphics() {
+    imageMaker.paintBoard(screenGraphics, 0, 0, PIXELS, 19, position);
+  }
+
+  /**
+   * Only the points changed by the next move, as BoardView repaints them.
+   */
+  @Benchmark
+  public void paintChangedPoints() {
+    for (Rectangle clip : changed) {
+      screenGraphics.setClip(clip);
+      imageMaker.paintBoard(screenGraphics, 0, 0, PIXELS, 19, afterMove);
+    }
+    screenGraphics.setClip(null);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import com.google.common.io.Resources;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how fast autogtp output can be split into events. The
+ * <code>megabytes</code> secondary result is the throughput in MB/s.
+ * <p>
+ * By default the bundled sample session is used, pass
+ * <code>-p log=/path/to/captured.log</code> to measure a recorded log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AutoGtpTokenizerBenchmark {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  // the pattern the parser used to re-run over its whole buffer after each byte
+  private static final Pattern LEGACY_EVENT =
+      Pattern.compile("^(.*set\\.|\\s*\\d+\\s\\((?:[BW]\\s)?(\\w+)\\)\\s*|Game).*", Pattern.DOTALL);
+
+  @Param("")
+  public String log;
+
+  private byte[] output;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Throughput {
+    public double megabytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      megabytes = 0;
+    }
+  }
+
+  @Setup
+  public void loadLog() throws IOException {
+    if (log.isEmpty()) {
+      output = Resources.toByteArray(Resources.getResource("autogtp-selfplay.log"));
+    } else {
+      output = Files.readAllBytes(Paths.get(log));
+    }
+  }
+
+  @Benchmark
+  public int tokenizer(Throughput throughput) {
+    AutoGtpTokenizer tokenizer = new AutoGtpTokenizer();
+    int events = 0;
+    for (int off = 0; off < output.length; off += CHUNK_SIZE) {
+      tokenizer.feed(output, off, Math.min(CHUNK_SIZE, output.length - off));
+      while (tokenizer.nextEvent() != null) {
+        events++;
+      }
+    }
+    throughput.megabytes += output.length / 1e6;
+    return events;
+  }
+
+  @Benchmark
+  public int legacyRegex(Throughput throughput) {
+    StringBuffer buffer = new StringBuffer();
+    int events = 0;
+    for (byte b : output) {
+      buffer.append((char) (b & 0xFF));
+      Matcher m = LEGACY_EVENT.matcher(buffer);
+      if (m.matches()) {
+        buffer.delete(0, m.group(1).length());
+        events++;
+      }
+    }
+    throughput.megabytes += output.length / 1e6;
+    return events;
+  }
+}
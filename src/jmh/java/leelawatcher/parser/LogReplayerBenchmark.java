@@ -0,0 +1,107 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import com.google.common.io.Resources;
+import leelawatcher.goboard.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures replaying a captured log of autogtp's output onto a board,
+ * memory mapped by {@link LogReplayer} and streamed through the
+ * {@link AutoGtpOutputParser}. The <code>games</code> secondary result is
+ * the throughput in games/s.
+ * <p>
+ * By default the bundled sample session is repeated to make a log of a few
+ * megabytes, pass <code>-p log=/path/to/captured.log</code> to measure a
+ * recorded log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LogReplayerBenchmark {
+
+  private static final int COPIES = 100;
+
+  @Param("")
+  public String log;
+
+  private File file;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Throughput {
+    public double games;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      games = 0;
+    }
+  }
+
+  @Setup
+  public void writeLog() throws IOException {
+    if (!log.isEmpty()) {
+      file = new File(log);
+      return;
+    }
+    byte[] session = Resources.toByteArray(Resources.getResource("autogtp-selfplay.log"));
+    file = File.createTempFile("autogtp", ".log");
+    file.deleteOnExit();
+    byte[] output = new byte[session.length * COPIES];
+    for (int i = 0; i < COPIES; i++) {
+      System.arraycopy(session, 0, output, i * session.length, session.length);
+    }
+    Files.write(file.toPath(), output);
+  }
+
+  @Benchmark
+  public int mapped(Throughput throughput) throws IOException {
+    LogReplayer replayer = new LogReplayer(new Board(true));
+    replayer.replay(file);
+    throughput.games += replayer.getGames();
+    return replayer.getBoard().getNumPositions();
+  }
+
+  @Benchmark
+  public int parser(Throughput throughput) throws IOException {
+    AutoGtpOutputParser parser = new AutoGtpOutputParser();
+    parser.setEcho(false);
+    BoardUpdater updater = new BoardUpdater(new Board(true));
+    parser.addGameEventListener(updater);
+    parser.addGameEventListener(new GameEventListener() {
+      @Override
+      public void gameEnded() {
+        throughput.games++;
+      }
+    });
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      parser.run(in);
+    }
+    return updater.getBoard().getNumPositions();
+  }
+}
@@ -0,0 +1,75 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.scorer;
+
+import leelawatcher.SelfPlayGames;
+import leelawatcher.goboard.IllegalMoveException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rule checks made for every move, against mid game positions
+ * sampled from the bundled self-play games. Each invocation checks every
+ * snapshot once, so divide the score by the number of snapshots for the
+ * cost of a single check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QuickRulesBenchmark {
+
+  private QuickRules rules = new QuickRules();
+  private List<SelfPlayGames.Snapshot> snapshots;
+
+  @Setup
+  public void loadGames() throws IOException, IllegalMoveException {
+    snapshots = SelfPlayGames.snapshots(SelfPlayGames.load(), 25);
+  }
+
+  /**
+   * Validate the move that was actually played next.
+   */
+  @Benchmark
+  public void isLegalMove(Blackhole bh) {
+    for (SelfPlayGames.Snapshot s : snapshots) {
+      bh.consume(rules.isLegalMove(s.nextMove, s.board));
+    }
+  }
+
+  @Benchmark
+  public void isKo(Blackhole bh) {
+    for (SelfPlayGames.Snapshot s : snapshots) {
+      bh.consume(rules.isKo(s.nextMove, s.board));
+    }
+  }
+
+  /**
+   * Count the liberties of the group containing the last stone played.
+   */
+  @Benchmark
+  public void countLibs(Blackhole bh) {
+    for (SelfPlayGames.Snapshot s : snapshots) {
+      bh.consume(rules.countLibs(s.lastMove, 0, null, s.board));
+    }
+  }
+}
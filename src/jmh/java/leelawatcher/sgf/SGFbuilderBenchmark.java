@@ -0,0 +1,91 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.sgf;
+
+import leelawatcher.SelfPlayGames;
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.PointOfPlay;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting each of the bundled self-play games to SGF, both as
+ * a <code>String</code> and streamed to a <code>Writer</code> that discards it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SGFbuilderBenchmark {
+
+  private SGFbuilder builder = new SGFbuilder();
+  private List<Game> games = new ArrayList<>();
+
+  @Setup
+  public void loadGames() throws IOException {
+    for (List<PointOfPlay> moves : SelfPlayGames.load()) {
+      Game game = new Game("Leela", "Leela", 0, 7.5f);
+      moves.forEach(p -> game.doMove(p.getX(), p.getY()));
+      games.add(game);
+    }
+  }
+
+  @Benchmark
+  public void buildSGF(Blackhole bh) {
+    for (Game game : games) {
+      bh.consume(builder.buildSGF(game));
+    }
+  }
+
+  @Benchmark
+  public void writeSGF(Blackhole bh) throws IOException {
+    Writer out = new Writer() {
+      @Override
+      public void write(char[] cbuf, int off, int len) {
+        bh.consume(cbuf);
+      }
+
+      @Override
+      public void write(int c) {
+        bh.consume(c);
+      }
+
+      @Override
+      public void write(String str, int off, int len) {
+        bh.consume(str);
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    for (Game game : games) {
+      builder.writeSGF(game, out);
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher;
+
+import com.google.common.io.Resources;
+import leelawatcher.archive.ArchiveReader;
+import leelawatcher.archive.GameArchive;
+import leelawatcher.gui.BoardGrid;
+import leelawatcher.gui.LeelaWatcher;
+import leelawatcher.goboard.Board;
+import leelawatcher.headless.HeadlessWatcher;
+import leelawatcher.metrics.Metrics;
+import leelawatcher.metrics.MetricsServer;
+import leelawatcher.parser.LogReplayer;
+import leelawatcher.parser.OutputMirror;
+import leelawatcher.sgf.GameSaver;
+import leelawatcher.sgf.ReplayValidator;
+import leelawatcher.sgf.SGFImporter;
+import leelawatcher.supervisor.Supervisor;
+import org.docopt.Docopt;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point that parses the command line and then starts either the GUI
+ * or, with <code>--headless</code>, a watcher that never touches AWT. Several
+ * instances of autogtp are watched with a {@link Supervisor}, and logs of
+ * autogtp's output that were saved earlier are replayed with a
+ * {@link LogReplayer}. Directories of SGF files are read with an
+ * {@link SGFImporter} and checked with a {@link ReplayValidator}. This class must
+ * not refer to any GUI class other than to call the static
+ * <code>start</code> methods of {@link LeelaWatcher} and {@link BoardGrid},
+ * so that it can be loaded on machines without a display.
+ */
+public class Main {
+
+  // finished games that may wait to be saved before more are dropped
+  private static final int SAVE_QUEUE = 256;
+
+  public static void main(String[] args) throws IOException {
+    URL usage = Resources.getResource("usage.docopts.txt");
+    String doc = Resources.toString(usage, Charset.forName("UTF-8"));
+    Docopt options = new Docopt(doc);
+    Map<String, Object> optMap = options.parse(args);
+
+    if ((boolean) optMap.get("--export")) {
+      System.exit(export(optMap));
+    }
+    if ((boolean) optMap.get("--import")) {
+      System.exit(importSGF(optMap));
+    }
+    if ((boolean) optMap.get("--validate")) {
+      System.exit(validate(optMap));
+    }
+    Metrics.registerMBean();
+    long metricsLog = Long.parseLong(String.valueOf(optMap.get("--metrics-log")));
+    if (metricsLog > 0) {
+      Metrics.logEvery(metricsLog, System.out);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(Metrics.summary())));
+    }
+    int metricsPort = Integer.parseInt(String.valueOf(optMap.get("--metrics-port")));
+    if (metricsPort > 0) {
+      try {
+        new MetricsServer(new InetSocketAddress(metricsPort));
+      } catch (IOException e) {
+        System.out.println("Couldn't serve metrics:" + e);
+      }
+    }
+    boolean headless = (boolean) optMap.get("--headless");
+    GameSaver saver = gameSaver(optMap);
+    if ((boolean) optMap.get("--replay")) {
+      System.exit(replay(optMap, saver));
+    }
+    int instances = Integer.parseInt(String.valueOf(optMap.get("--instances")));
+    if (instances == 1 && !(boolean) optMap.get("--attach")) {
+      if (headless) {
+        System.exit(HeadlessWatcher.start(optMap, saver));
+      } else {
+        LeelaWatcher.start(optMap, saver);
+      }
+      return;
+    }
+
+    Supervisor supervisor = supervise(optMap, instances);
+    if (headless) {
+      try {
+        System.exit(HeadlessWatcher.start(supervisor, saver));
+      } catch (InterruptedException e) {
+        System.exit(1);
+      }
+    } else {
+      BoardGrid.start(supervisor, saver);
+    }
+  }
+
+  /**
+   * Start saving games as directed by the command line. Games still waiting
+   * to be saved when the JVM exits are saved before it does.
+   *
+   * @return the saver, or null if games are not to be saved
+   */
+  private static GameSaver gameSaver(Map<String, Object> optMap) throws IOException {
+    File dir = (boolean) optMap.get("--no-sgf") ? null : new File(System.getProperty("user.dir"));
+    Object archiveFile = optMap.get("--archive");
+    if (dir == null && archiveFile == null) {
+      return null;
+    }
+    GameArchive archive = archiveFile == null ? null : new GameArchive(new File(String.valueOf(archiveFile)));
+    GameSaver.Sync sync = GameSaver.Sync.valueOf(
+        String.valueOf(optMap.get("--fsync")).toUpperCase(Locale.ROOT));
+    GameSaver saver = new GameSaver(dir, archive, SAVE_QUEUE, sync);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      saver.close();
+      System.out.println(saver.report());
+    }));
+    return saver;
+  }
+
+  /**
+   * Replay the games in saved logs of autogtp's output, saving each one.
+   *
+   * @return the exit status to exit with
+   */
+  private static int replay(Map<String, Object> optMap, GameSaver saver) throws IOException {
+    for (Object log : (List<?>) optMap.get("<log>")) {
+      LogReplayer replayer = new LogReplayer(new Board(true));
+      if (saver != null) {
+        replayer.setGameEndedListener(board -> saver.save(board.getGame()));
+      }
+      long start = System.nanoTime();
+      replayer.replay(new File(String.valueOf(log)));
+      double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+      System.out.println(String.format("Replayed %s: %d games, %d moves, %d illegal, %d unreadable " +
+              "in %.1f seconds, %.1f games/second", log, replayer.getGames(), replayer.getMoves(),
+          replayer.getIllegalMoves(), replayer.getUnreadableMoves(), seconds, replayer.getGames() / seconds));
+    }
+    return 0;
+  }
+
+  /**
+   * Convert every game in an archive to an SGF file.
+   *
+   * @return the exit status to exit with
+   */
+  private static int export(Map<String, Object> optMap) throws IOException {
+    File dir = new File(String.valueOf(optMap.get("<sgfdir>")));
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      System.out.println("Couldn't create " + dir);
+      return 1;
+    }
+    try (ArchiveReader reader = new ArchiveReader(new File(String.valueOf(optMap.get("<archive>"))))) {
+      System.out.println("Exported " + reader.exportSGF(dir) + " games to " + dir);
+    }
+    return 0;
+  }
+
+  /**
+   * Read and replay every SGF file in a directory, using every processor.
+   *
+   * @return the exit status to exit with, 1 if any game couldn't be replayed
+   */
+  private static int importSGF(Map<String, Object> optMap) throws IOException {
+    SGFImporter importer = new SGFImporter(Runtime.getRuntime().availableProcessors());
+    try {
+      importer.importDirectory(new File(String.valueOf(optMap.get("<sgfdir>"))));
+    } catch (InterruptedException e) {
+      return 1;
+    }
+    System.out.println(importer.report());
+    return importer.getGames() == importer.getFiles() ? 0 : 1;
+  }
+
+  /**
+   * Replay every SGF file in a directory, using every processor, and print
+   * the illegal moves and captures found.
+   *
+   * @return the exit status to exit with, 1 if any game couldn't be replayed
+   */
+  private static int validate(Map<String, Object> optMap) throws IOException {
+    ReplayValidator validator = new ReplayValidator(Runtime.getRuntime().availableProcessors());
+    ReplayValidator.Report report = validator.validate(new File(String.valueOf(optMap.get("<sgfdir>"))));
+    System.out.println(report);
+    return report.getGames() == report.getFiles() ? 0 : 1;
+  }
+
+  /**
+   * Launch or attach to the instances of autogtp given on the command line.
+   * Each launched instance is told its index (from 0) in the environment
+   * variable LEELAWATCHER_INSTANCE, so that a wrapper script can give each
+   * one its own GPU.
+   */
+  private static Supervisor supervise(Map<String, Object> optMap, int instances) throws IOException {
+    Supervisor supervisor = new Supervisor(Integer.parseInt(String.valueOf(optMap.get("--threads"))));
+    if ((boolean) optMap.get("--attach")) {
+      for (Object log : (List<?>) optMap.get("<log>")) {
+        File file = new File(String.valueOf(log));
+        supervisor.attach(file.getName(), file);
+      }
+    } else {
+      for (int i = 0; i < instances; i++) {
+        ProcessBuilder command = autoGtpCommand(optMap);
+        command.environment().put("LEELAWATCHER_INSTANCE", String.valueOf(i));
+        supervisor.launch("autogtp-" + i, command);
+      }
+    }
+    return supervisor;
+  }
+
+  /**
+   * Mirror autogtp's output to standard out as directed by the command line.
+   *
+   * @param optMap the parsed command line options
+   * @return the mirror to give the parser
+   */
+  public static OutputMirror outputMirror(Map<String, Object> optMap) {
+    return OutputMirror.standardOut(OutputMirror.Mode.valueOf(
+        String.valueOf(optMap.get("--mirror")).toUpperCase(Locale.ROOT)));
+  }
+
+  /**
+   * Launch autogtp as directed by the command line.
+   *
+   * @param optMap the parsed command line options
+   * @return the running autogtp process, with its error output merged into
+   * its standard output.
+   * @throws IOException if the process could not be started
+   */
+  public static Process startAutoGtp(Map<String, Object> optMap) throws IOException {
+    return autoGtpCommand(optMap).start();
+  }
+
+  /**
+   * Prepare to launch autogtp as directed by the command line.
+   *
+   * @param optMap the parsed command line options
+   * @return a builder for autogtp processes, with their error output merged
+   * into their standard output.
+   */
+  public static ProcessBuilder autoGtpCommand(Map<String, Object> optMap) {
+    //noinspection SpellCheckingInspection
+    String cmd;
+    Object cmdObj = optMap.get("<cmd>");
+    if (cmdObj != null) {
+      cmd = String.valueOf(cmdObj);
+    } else {
+      cmd = "./autogtp";
+    }
+    System.out.println("cmd is " + cmd);
+    ProcessBuilder pb = new ProcessBuilder(cmd);
+    pb.directory(new File(String.valueOf(optMap.get("<dir>"))));
+    pb.redirectErrorStream(true);
+    return pb;
+  }
+}
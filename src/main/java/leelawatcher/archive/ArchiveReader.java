@@ -0,0 +1,119 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.archive;
+
+import leelawatcher.goboard.Game;
+import leelawatcher.sgf.SGFbuilder;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the games in a {@link GameArchive}, and converts them back to SGF.
+ * Only the games that were in the index when the reader was opened can be
+ * read.
+ */
+public class ArchiveReader implements Closeable {
+
+  private final FileChannel archive;
+  private final long[] offsets;
+  private final long end;
+
+  /**
+   * @param file the archive, its index is expected next to it
+   * @throws IOException if the archive or its index can't be read
+   */
+  public ArchiveReader(File file) throws IOException {
+    archive = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try (FileChannel index = FileChannel.open(GameArchive.indexFile(file).toPath(), StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_SIZE);
+      GameArchive.readFully(archive, header, 0);
+      if (header.getInt(0) != GameArchive.ARCHIVE_MAGIC || header.getInt(4) != GameArchive.VERSION) {
+        throw new IOException(file + " is not a version " + GameArchive.VERSION + " game archive");
+      }
+      ByteBuffer entries = ByteBuffer.allocate((int) index.size());
+      GameArchive.readFully(index, entries, 0);
+      if (entries.limit() < GameArchive.HEADER_SIZE || entries.getInt(0) != GameArchive.INDEX_MAGIC) {
+        throw new IOException(GameArchive.indexFile(file) + " is not a game archive index");
+      }
+      entries.position(GameArchive.HEADER_SIZE);
+      offsets = new long[entries.remaining() / 8];
+      entries.asLongBuffer().get(offsets);
+      end = archive.size();
+    } catch (IOException e) {
+      archive.close();
+      throw e;
+    }
+  }
+
+  /**
+   * The number of games that can be read.
+   */
+  public int size() {
+    return offsets.length;
+  }
+
+  /**
+   * Read a game from the archive. See {@link GameArchive} for what is kept.
+   *
+   * @param game the number of the game, from 0
+   * @return the game, with its moves attached to the root of its move tree
+   * @throws IOException if the game can't be read
+   */
+  public Game read(int game) throws IOException {
+    long start = offsets[game];
+    ByteBuffer length = ByteBuffer.allocate(4);
+    GameArchive.readFully(archive, length, start);
+    int bodyLength = length.getInt(0);
+    if (bodyLength < 0 || start + 4 + bodyLength > end) {
+      throw new IOException("Game " + game + " is damaged");
+    }
+    ByteBuffer body = ByteBuffer.allocate(bodyLength);
+    GameArchive.readFully(archive, body, start + 4);
+    return GameRecord.read(body.array(), 0, bodyLength);
+  }
+
+  /**
+   * Write every game as an SGF file. Each file is named for the number of
+   * the game in the archive.
+   *
+   * @param dir the directory to write the files in
+   * @return the number of games written
+   * @throws IOException if a game can't be read or written
+   */
+  public int exportSGF(File dir) throws IOException {
+    SGFbuilder builder = new SGFbuilder();
+    for (int i = 0; i < offsets.length; i++) {
+      File sgf = new File(dir, String.format("%08d.sgf", i));
+      try (Writer out = new BufferedWriter(new FileWriter(sgf))) {
+        builder.writeSGF(read(i), out);
+      }
+    }
+    return offsets.length;
+  }
+
+  @Override
+  public void close() throws IOException {
+    archive.close();
+  }
+}
@@ -0,0 +1,228 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.archive;
+
+import leelawatcher.goboard.Game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends games to a compact binary archive, so that millions of self-play
+ * games can be kept in one file rather than one SGF file each.
+ * <p>
+ * The archive starts with the 4 bytes <code>LWGA</code> and a 4 byte
+ * version. Each game follows as a record: a 4 byte length and then the body,
+ * which holds the information about the game (players, ranks, handicap,
+ * komi, board size, name, event, result, date, place, notes and rules) and
+ * then 2 bytes for each move on the main line of the game. The top 3 bits of
+ * those 2 say whether it is a black or white move or adds a black, white or
+ * empty point in a setup node, and the rest give the point as
+ * <code>y * size + x</code>, or are all set for a pass. Variations and
+ * comments are not archived. All numbers are big endian, and strings are
+ * written with {@link java.io.DataOutput#writeUTF(String)}.
+ * <p>
+ * Beside the archive, in a file with <code>.idx</code> appended to its name,
+ * is an index: <code>LWGI</code>, the version, and then the 8 byte offset of
+ * each record in the archive, so that any game can be found without
+ * reading the ones before it. Both files are only ever appended to. If the
+ * JVM dies part way through appending, the index is brought up to date and
+ * any partly written record is cut off when the archive is next opened.
+ * <p>
+ * Games are read back with an {@link ArchiveReader}.
+ */
+public class GameArchive implements Closeable {
+
+  static final int ARCHIVE_MAGIC = 0x4C574741;  // LWGA
+  static final int INDEX_MAGIC = 0x4C574749;    // LWGI
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 8;
+
+  private final File file;
+  private final FileChannel archive;
+  private final FileChannel index;
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+  private final DataOutputStream recordOut = new DataOutputStream(record);
+  private final ByteBuffer offset = ByteBuffer.allocate(8);
+  private int games;
+
+  /**
+   * Open an archive to append to, creating it if it does not exist.
+   *
+   * @param file the archive, its index is next to it
+   * @throws IOException if the archive can't be opened or isn't an archive
+   */
+  public GameArchive(File file) throws IOException {
+    this.file = file;
+    archive = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      index = FileChannel.open(indexFile(file).toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      archive.close();
+      throw e;
+    }
+    try {
+      recover();
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * The index belonging to an archive.
+   *
+   * @param archive the archive
+   * @return the file holding its index
+   */
+  public static File indexFile(File archive) {
+    return new File(archive.getPath() + ".idx");
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * The number of games in the archive.
+   */
+  public int size() {
+    return games;
+  }
+
+  /**
+   * Append a game to the archive.
+   *
+   * @param game the game to append
+   * @return the number of the game in the archive, from 0
+   * @throws IOException              if the game could not be written
+   * @throws IllegalArgumentException if the game has a move that can't be
+   *                                  archived, i.e. is off the board
+   */
+  public int append(Game game) throws IOException {
+    record.reset();
+    recordOut.writeInt(0);  // the length, filled in below
+    GameRecord.write(game, recordOut);
+    ByteBuffer bytes = ByteBuffer.wrap(record.toByteArray());
+    bytes.putInt(0, bytes.limit() - 4);
+
+    long start = archive.size();
+    writeFully(archive, bytes, start);
+    offset.clear();
+    offset.putLong(start).flip();
+    writeFully(index, offset, index.size());
+    return games++;
+  }
+
+  /**
+   * Force everything appended so far to disk.
+   */
+  public void sync() throws IOException {
+    archive.force(false);
+    index.force(false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      archive.close();
+    } finally {
+      index.close();
+    }
+  }
+
+  // Check the headers, and make the index agree with the records that were
+  // completely written to the archive.
+  private void recover() throws IOException {
+    checkHeader(archive, ARCHIVE_MAGIC, file);
+    checkHeader(index, INDEX_MAGIC, indexFile(file));
+
+    long indexed = (index.size() - HEADER_SIZE) / 8;
+    long next = HEADER_SIZE;
+    ByteBuffer buf = ByteBuffer.allocate(8);
+    if (indexed > 0) {
+      // start from the last record that the index knows about
+      readFully(index, buf, HEADER_SIZE + (indexed - 1) * 8);
+      next = buf.getLong(0);
+      indexed--;
+    }
+    index.truncate(HEADER_SIZE + indexed * 8);
+
+    long end = archive.size();
+    while (next + 4 <= end) {
+      buf.clear().limit(4);
+      readFully(archive, buf, next);
+      long recordEnd = next + 4 + buf.getInt(0);
+      if (recordEnd > end) {
+        break;
+      }
+      buf.clear();
+      buf.putLong(next).flip();
+      writeFully(index, buf, index.size());
+      indexed++;
+      next = recordEnd;
+    }
+    if (next < end) {
+      System.out.println("Discarding a partly written game at the end of " + file);
+      archive.truncate(next);
+    }
+    games = (int) indexed;
+  }
+
+  private static void checkHeader(FileChannel channel, int magic, File file) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    if (channel.size() == 0) {
+      header.putInt(magic).putInt(VERSION).flip();
+      writeFully(channel, header, 0);
+      return;
+    }
+    if (channel.size() < HEADER_SIZE) {
+      throw new IOException(file + " is not a game archive");
+    }
+    readFully(channel, header, 0);
+    if (header.getInt(0) != magic) {
+      throw new IOException(file + " is not a game archive");
+    }
+    if (header.getInt(4) != VERSION) {
+      throw new IOException(file + " is version " + header.getInt(4) + ", expected " + VERSION);
+    }
+  }
+
+  static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+    while (buf.hasRemaining()) {
+      int read = channel.read(buf, position);
+      if (read < 0) {
+        throw new IOException("Unexpected end of archive");
+      }
+      position += read;
+    }
+    buf.flip();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+    while (buf.hasRemaining()) {
+      position += channel.write(buf, position);
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.archive;
+
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Converts a {@link Game} to and from the body of a record in a
+ * {@link GameArchive}. See there for the layout.
+ */
+final class GameRecord {
+
+  // the kind of node entry, in the top 3 bits
+  private static final int BLACK = 0;
+  private static final int WHITE = 1;
+  private static final int ADD_BLACK = 2;
+  private static final int ADD_WHITE = 3;
+  private static final int ADD_EMPTY = 4;
+
+  private static final int KIND_SHIFT = 13;
+  private static final int POINT_MASK = (1 << KIND_SHIFT) - 1;
+  private static final int PASS_POINT = POINT_MASK;
+
+  // a rank that has never been set
+  private static final float NO_RANK = -999.0f;
+
+  private GameRecord() {
+  }
+
+  /**
+   * Write the body of the record for a game.
+   *
+   * @throws IllegalArgumentException if a move is neither a pass nor on the
+   *                                  board
+   */
+  static void write(Game game, DataOutputStream out) throws IOException {
+    int size = boardSize(game);
+    out.writeUTF(game.getWName());
+    out.writeUTF(game.getBName());
+    out.writeFloat(game.getWRank());
+    out.writeFloat(game.getBRank());
+    out.writeByte(game.getHandi());
+    out.writeFloat(game.getKomi());
+    out.writeByte(size);
+    out.writeUTF(game.getGameName());
+    out.writeUTF(game.getGameEvent());
+    out.writeUTF(game.getGameResult());
+    out.writeUTF(game.getDate());
+    out.writeUTF(game.getPlace());
+    out.writeUTF(game.getGameNotes());
+    out.writeUTF(game.getRuleSet());
+
+    Move move = game.movesRoot();
+    while (true) {
+      if (move.isMove()) {
+        out.writeShort(entry(move.isBlack() ? BLACK : WHITE, move.getX(), move.getY(), size));
+      } else {
+        List<PointOfPlay>[] setup = move.getSetupInfo();
+        writeSetup(ADD_EMPTY, setup[0], size, out);
+        writeSetup(ADD_BLACK, setup[1], size, out);
+        writeSetup(ADD_WHITE, setup[2], size, out);
+      }
+      if (move.numChildren() == 0) {
+        break;
+      }
+      move = move.next(0);
+    }
+  }
+
+  /**
+   * Read the body of a record back into a game. The moves are attached to
+   * the root of the game's tree, but the game is left at its start.
+   *
+   * @param body   the bytes of the record
+   * @param offset where the body starts in <code>body</code>
+   * @param length the length of the body
+   */
+  static Game read(byte[] body, int offset, int length) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, offset, length));
+    String wName = in.readUTF();
+    String bName = in.readUTF();
+    float wRank = in.readFloat();
+    float bRank = in.readFloat();
+    int handi = in.readUnsignedByte();
+    float komi = in.readFloat();
+    int size = in.readUnsignedByte();
+
+    Game game = new Game(wName, bName, handi, komi);
+    if (wRank != NO_RANK) {
+      game.setWRank(wRank);
+    }
+    if (bRank != NO_RANK) {
+      game.setBRank(bRank);
+    }
+    game.setBoardSize(size);
+    game.setGameName(in.readUTF());
+    game.setGameEvent(in.readUTF());
+    game.setGameResult(in.readUTF());
+    game.setDate(in.readUTF());
+    game.setPlace(in.readUTF());
+    game.setGameNotes(in.readUTF());
+    game.setRuleSet(in.readUTF());
+
+    Move node = game.movesRoot();
+    while (in.available() > 0) {
+      int entry = in.readUnsignedShort();
+      int kind = entry >>> KIND_SHIFT;
+      int point = entry & POINT_MASK;
+      int x = point == PASS_POINT ? Move.PASS : point % size;
+      int y = point == PASS_POINT ? Move.PASS : point / size;
+      switch (kind) {
+        case BLACK:
+          node = new Move(x, y, Move.MOVE_BLACK, node);
+          break;
+        case WHITE:
+          node = new Move(x, y, Move.MOVE_WHITE, node);
+          break;
+        default:
+          if (node.isMove()) {
+            node = new Move(node);
+          }
+          if (kind == ADD_BLACK) {
+            node.setupBlack(x, y);
+          } else if (kind == ADD_WHITE) {
+            node.setupWhite(x, y);
+          } else if (kind == ADD_EMPTY) {
+            node.setupEmpty(x, y);
+          } else {
+            throw new IOException("Unknown node entry " + Integer.toHexString(entry));
+          }
+      }
+    }
+    return game;
+  }
+
+  private static void writeSetup(int kind, List<PointOfPlay> points, int size, DataOutputStream out)
+      throws IOException {
+    for (PointOfPlay p : points) {
+      out.writeShort(entry(kind, p.getX(), p.getY(), size));
+    }
+  }
+
+  private static int entry(int kind, int x, int y, int size) {
+    if (Move.isPass(x, y)) {
+      return kind << KIND_SHIFT | PASS_POINT;
+    }
+    if (x < 0 || x >= size || y < 0 || y >= size) {
+      throw new IllegalArgumentException("Can't archive a move at " + x + "," + y);
+    }
+    return kind << KIND_SHIFT | (y * size + x);
+  }
+
+  private static int boardSize(Game game) {
+    String size = game.getBoardSize();
+    int colon = size.indexOf(':');
+    return Integer.parseInt(colon < 0 ? size : size.substring(0, colon));
+  }
+}
@@ -19,8 +19,10 @@ package leelawatcher.goboard;
 import leelawatcher.scorer.AbstractRules;
 import leelawatcher.scorer.QuickRules;
 import leelawatcher.scorer.Rules;
+import leelawatcher.sgf.SGFbuilder;
 
 import java.io.*;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 
@@ -43,9 +45,15 @@ public class Board {
   private Game gm;
   private List<Position> positions;
   private int currPos;
+  // positions.get(currPos), published only once a move is complete so that
+  // other threads (e.g. painting the board) can read it while moves are played
+  private volatile Position current;
   private Rules ruleImp;
   private int whiteHasCap; // number of opponents stones white has captured.
   private int blackHasCap;
+  private int boardSize;
+  private GroupTracker groups; // null when captures are found by flood fill
+  private HashHistory history = new HashHistory(); // hashes of positions
 
   /**
    * Create a new default board object. Default player names are "White" and
@@ -57,13 +65,49 @@ public class Board {
    */
 
   public Board() {
+    this(false);
+  }
+
+  /**
+   * Create a new default board object as described for {@link #Board()},
+   * choosing how captures are found.
+   * <p>
+   * By default the liberties of each neighbor of a new stone are counted by
+   * flood filling the board with the rules implementation. When
+   * <code>trackGroups</code> is true the board instead maintains its groups
+   * and their liberties incrementally as stones are played, so that finding
+   * captures costs time proportional to the stones captured rather than
+   * to the size of the neighboring groups.
+   *
+   * @param trackGroups true to track groups incrementally
+   */
+  public Board(boolean trackGroups) {
+    this(new QuickRules(), trackGroups);
+  }
+
+  /**
+   * Create a new default board object as described for {@link #Board()},
+   * enforcing the supplied rules, for example {@link QuickRules} with a
+   * particular {@link leelawatcher.scorer.KoRule}.
+   *
+   * @param rules       the rules that determine which moves are legal
+   * @param trackGroups true to track groups incrementally, see
+   *                    {@link #Board(boolean)}
+   */
+  public Board(Rules rules, boolean trackGroups) {
     gm = new Game("White", "Black", 0, 5.5f); // for the moment stick in a
     positions = new ArrayList<>();              // default game.
     positions.add(new Position());
     currPos = 0;
-    ruleImp = new QuickRules();
+    ruleImp = rules;
     whiteHasCap = 0;
     blackHasCap = 0;
+    boardSize = parseBoardSize();
+    if (trackGroups) {
+      groups = new GroupTracker(boardSize);
+    }
+    history.add(positions.get(currPos).getHash());
+    current = positions.get(currPos);
   }
 
   /**
@@ -83,6 +127,19 @@ public class Board {
     currPos = 0;
     whiteHasCap = 0;
     blackHasCap = 0;
+    boardSize = parseBoardSize();
+    positionsReplaced();
+  }
+
+  /**
+   * The game being played on this board. It is replaced, not cleared, by
+   * {@link #newGame(String, String, int, float)}, so once a game has ended
+   * it can be handed to another thread, e.g. to be saved.
+   *
+   * @return the current game
+   */
+  public Game getGame() {
+    return gm;
   }
 
   /**
@@ -125,7 +182,18 @@ public class Board {
   /**
    * Get the size of the board as an integer.
    * <p>
-   * This method Parses the output of <code>Game.getBoardSize</code>
+   * The size is parsed once from <code>Game.getBoardSize</code> when the
+   * game is created, see {@link #parseBoardSize()}.
+   *
+   * @return An integer board size.
+   */
+
+  public int getBoardSize() {
+    return boardSize;
+  }
+
+  /**
+   * Parses the output of <code>Game.getBoardSize</code>
    * to provide a numeric board size. Non square boards are not yet
    * supported by this method, although they are legal in SGF files.
    * A more graceful way of handling the format exception will probably
@@ -135,7 +203,7 @@ public class Board {
    * @return An integer board size.
    */
 
-  public int getBoardSize() {
+  private int parseBoardSize() {
     int numlines = 0;
     String temp = gm.getBoardSize();
     if (temp.indexOf(':') < 0)
@@ -184,7 +252,25 @@ public class Board {
    */
 
   public void saveGame(String filName) {
-    File gmfile = new File(filName);
+    saveGame(new File(filName));
+  }
+
+  /**
+   * Output the current game as described for {@link #saveGame(String)} to a
+   * file in the working directory named for the time at which it was saved.
+   *
+   * @return the file the game was saved to
+   */
+  public File saveGame() {
+    String format = DateTimeFormatter.ISO_INSTANT
+        .format(new Date().toInstant()).replaceAll(":", "_");
+    File file = new File(format + ".sgf");
+    System.out.println("Saving as:" + file);
+    saveGame(file);
+    return file;
+  }
+
+  private void saveGame(File gmfile) {
     try {
       if (!gmfile.createNewFile()) {
         System.out.println("Did not create " + gmfile);
@@ -193,9 +279,8 @@ public class Board {
     } catch (IOException ioe) {
       throw new RuntimeException(ioe);
     }
-    try (PrintWriter writeSGF = new PrintWriter(new BufferedWriter(new FileWriter(gmfile)))) {
-      writeSGF.print(gm.toString());
-      writeSGF.flush();
+    try (Writer writeSGF = new BufferedWriter(new FileWriter(gmfile))) {
+      new SGFbuilder().writeSGF(gm, writeSGF);
     } catch (IOException e) {
       System.out.println("Couldn't save game:" + e);
     }
@@ -214,6 +299,7 @@ public class Board {
       gm.undoMove();
       positions.remove(currPos);
       currPos--;
+      positionsReplaced();
     }
   }
 
@@ -246,77 +332,109 @@ public class Board {
    */
 
   public void doMove(int x, int y) throws IllegalMoveException {
-    PointOfPlay proposedMove = new PointOfPlay(x, y);
+    PointOfPlay proposedMove = PointOfPlay.of(x, y);
     boolean legalMove = ruleImp.isLegalMove(proposedMove, this);
     if (!legalMove) {
       throw new IllegalMoveException(proposedMove, positions.get(currPos));
     }
     if (!gm.isGameOver()) {
       boolean wmove = isWhiteMove();
-      PointOfPlay dir;
-      positions.add(new Position(positions.get(currPos++),
-          gm.doMove(x, y)));
-      Position temp = positions.get(currPos);
-
-      dir = new PointOfPlay(x, y + 1);
-      if (isOnBoard(dir) && temp.stoneAt(dir)
-          && temp.blackAt(dir) == wmove
-          && (countLiberties(dir) == 0)) {
-        captureGroup(dir);
-      }
-      dir = new PointOfPlay(x + 1, y);
-      if (isOnBoard(dir) && temp.stoneAt(dir)
-          && temp.blackAt(dir) == wmove
-          && (countLiberties(dir) == 0)) {
-        captureGroup(dir);
-      }
-      dir = new PointOfPlay(x, y - 1);
-      if (isOnBoard(dir) && temp.stoneAt(dir)
-          && temp.blackAt(dir) == wmove
-          && (countLiberties(dir) == 0)) {
-        captureGroup(dir);
-      }
-      dir = new PointOfPlay(x - 1, y);
-      if (isOnBoard(dir) && temp.stoneAt(dir)
-          && temp.blackAt(dir) == wmove
-          && (countLiberties(dir) == 0)) {
-        captureGroup(dir);
+      // the whole of the next position, captures included, is made before
+      // it is added, so that it is never seen half made
+      Position next = new Position(positions.get(currPos), gm.doMove(x, y));
+
+      if (groups != null) {
+        if (!Move.isPass(x, y)) {
+          Position.Builder captures = new Position.Builder(next);
+          int captured = groups.play(captures, x, y, wmove);
+          if (wmove) {
+            whiteHasCap += captured;
+          } else {
+            blackHasCap += captured;
+          }
+          next = captures.build();
+        }
+      } else {
+        next = captureIfDead(next, PointOfPlay.of(x, y + 1), wmove);
+        next = captureIfDead(next, PointOfPlay.of(x + 1, y), wmove);
+        next = captureIfDead(next, PointOfPlay.of(x, y - 1), wmove);
+        next = captureIfDead(next, PointOfPlay.of(x - 1, y), wmove);
       }
 
       // check self-capture.
-      if (ruleImp.isSelfCaptureAllowed()) {
-        if (countLiberties(proposedMove) == 0) {
-          captureGroup(dir);
-        }
+      boolean selfCapture = ruleImp.isSelfCaptureAllowed()
+          && countLiberties(next, proposedMove) == 0;
+      if (selfCapture) {
+        next = captureGroup(next, proposedMove);
+      }
+      positions.add(next);
+      currPos++;
+      if (selfCapture) {
+        positionsReplaced();
+      } else {
+        history.add(next.getHash());
       }
+      current = next;
     } else {
       System.err.println("Warning: move after end of game ignored");
     }
   }
 
   /**
-   * Get a <em>copy</em> of the current position.
+   * Get the current position.
    * <p>
-   * The object returned is a clone of the object pointed to by
-   * <code>currPos</code>, and therefore modifications to it will
-   * not be reflected on the board.
+   * Positions are immutable, so the object returned is the one held by the
+   * board rather than a copy. Later moves replace it on the board rather
+   * than changing it. Unlike the other methods of this class, this may be
+   * called from any thread, and returns the position after the last
+   * complete move.
    *
-   * @return A clone of the current {@link Position position}
+   * @return The current {@link Position position}
    */
 
-  public Position getCurrPos() // send out a copy of the current position
-  {                            // (we wouldn't want it modified directly!)
+  public Position getCurrPos() {
+    return current;
+  }
 
-    Position temp = new Position();  // just to keep the compiler happy
+  /**
+   * Find out how many positions are stored for this variation, including
+   * the empty position before the first move.
+   *
+   * @return the number of positions available from {@link #getPosition(int)}
+   */
+  public int getNumPositions() {
+    return positions.size();
+  }
 
-    try                              // now throw it away...
-    {
-      temp = (Position) positions.get(currPos).clone();
-    } catch (CloneNotSupportedException e) {
-      e.printStackTrace();
-      System.exit(0);                 // don't even try to recover from this!
-    }
-    return temp;
+  /**
+   * Get one of the positions played so far in this variation <em>without</em>
+   * copying it.
+   * <p>
+   * This exists so that rules can examine earlier positions, e.g. for ko.
+   * The object returned is the one held by the board, which is immutable.
+   * Only the thread playing the moves should call this.
+   *
+   * @param index 0 for the empty starting position, up to
+   *              <code>getNumPositions() - 1</code> for the current position
+   * @return the {@link Position position} at that index
+   */
+  public Position getPosition(int index) {
+    return positions.get(index);
+  }
+
+  /**
+   * Test if the stones of a position have been seen before in this variation,
+   * in constant time.
+   * <p>
+   * The test is made on {@link Zobrist} hashes, so a true result may
+   * (extremely rarely) be a collision, and callers that must be exact should
+   * confirm it by comparing positions.
+   *
+   * @param positionHash the {@link Position#getHash() hash} of the stones
+   * @return false if no position with those stones has occurred
+   */
+  public boolean hasOccurred(long positionHash) {
+    return history.contains(positionHash);
   }
 
   /**
@@ -334,23 +452,45 @@ public class Board {
 
   @SuppressWarnings("WeakerAccess")
   public int countLiberties(PointOfPlay p) {
+    if (groups != null) {
+      return groups.liberties(p.getX(), p.getY());
+    }
     return ruleImp.countLibs(p, 0, null, this);
   }
 
+  // The liberties of the group at p in a position that is not (yet) the
+  // current one.
+  private int countLiberties(Position pos, PointOfPlay p) {
+    if (groups != null) {
+      return groups.liberties(p.getX(), p.getY());
+    }
+    return ruleImp.countLibs(p, 0, new MarkablePosition(pos), this);
+  }
+
+  // Capture the opposing group at p, if it has no liberties left in pos.
+  private Position captureIfDead(Position pos, PointOfPlay p, boolean wmove) {
+    if (isOnBoard(p) && pos.stoneAt(p) && pos.blackAt(p) == wmove
+        && countLiberties(pos, p) == 0) {
+      return captureGroup(pos, p);
+    }
+    return pos;
+  }
+
   /**
    * Capture a single stone at point p for the opposing player.
    *
-   * @param p The point on which the stone lies.
+   * @param p        The point on which the stone lies.
+   * @param tmp      The position the stone is captured from.
+   * @param captures Derives the position without the captured stones.
    */
-  private void captureStone(PointOfPlay p) {
-    Position tmp = positions.get(currPos);
+  private void captureStone(PointOfPlay p, Position tmp, Position.Builder captures) {
     if (tmp.stoneAt(p)) {
       if (tmp.blackAt(p)) {
         ++whiteHasCap;
       } else {
         ++blackHasCap;
       }
-      tmp.removeStoneAt(p);
+      captures.removeStoneAt(p);
     }
 
   }
@@ -364,6 +504,9 @@ public class Board {
    */
   @SuppressWarnings("unused")
   public int countGroup(PointOfPlay p) {
+    if (groups != null) {
+      return groups.stones(p.getX(), p.getY());
+    }
     return enumerateGroup(p).size();
   }
 
@@ -372,7 +515,8 @@ public class Board {
    * <p>
    * This method calls {@link #enumerateGroup(PointOfPlay) enumerateGroup}
    * to get a list of the stones in the group, and then iteratively
-   * uses {@link #captureStone(PointOfPlay) captureStone} to capture them.
+   * uses {@link #captureStone(PointOfPlay, Position, Position.Builder) captureStone}
+   * to capture them, replacing the current position with one without them.
    *
    * @param p A point specifying a stone that is a member of the
    *          group in question.
@@ -380,15 +524,22 @@ public class Board {
    */
   @SuppressWarnings({"UnusedReturnValue", "WeakerAccess"})
   public int captureGroup(PointOfPlay p) {
-    Set groupList = enumerateGroup(p);
-    int result = groupList.size();
+    int result = enumerateGroup(p).size();
+    Position next = captureGroup(positions.get(currPos), p);
+    positions.set(currPos, next);
+    positionsReplaced();
+    return result;
 
+  }
+
+  // The position without the group at p, counting its stones as captured.
+  private Position captureGroup(Position pos, PointOfPlay p) {
+    Set groupList = new MarkablePosition(pos).getGroupSet(p, null, getBoardSize());
+    Position.Builder captures = new Position.Builder(pos);
     for (Object aGroupList : groupList) {
-      captureStone((PointOfPlay) aGroupList);
+      captureStone((PointOfPlay) aGroupList, pos, captures);
     }
-
-    return result;
-
+    return captures.build();
   }
 
   /**
@@ -440,12 +591,79 @@ public class Board {
     empty.forEach(p -> this.gm.doSetup(Move.EMPTY, p.getX(), p.getY(), blackToMove));
     if (initalMove == this.gm.getCurrMove()) {
       // was already a setup move to which we added points, need to recreate the existing position.
-      positions.remove(currPos);
-      positions.add(new Position(positions.get(currPos), this.gm.getCurrMove()));
+      positions.set(currPos, new Position(positions.get(currPos - 1), this.gm.getCurrMove()));
     } else {
       // we created a new setup move
       positions.add(new Position(positions.get(currPos++), this.gm.getCurrMove()));
     }
+    positionsReplaced();
+  }
+
+  /**
+   * Replace the current game with the main line of another, for example one
+   * read by {@link leelawatcher.sgf.SGFparser}, playing its moves and setup
+   * nodes on this board so that captures are made and the rules enforced.
+   * The other game is not changed. Only 19x19 games can be replayed.
+   * <p>
+   * Setting up stones gives the turn to the player of the move that follows,
+   * or else to the player the setup node names. A move by the player whose
+   * turn it isn't is illegal.
+   *
+   * @param game the game to replay
+   * @throws IllegalMoveException if a move is illegal, the board is left at
+   *                              the position before it
+   */
+  public void replay(Game game) throws IllegalMoveException {
+    if (!"19".equals(game.getBoardSize())) {
+      throw new IllegalArgumentException("Can't replay a game of size " + game.getBoardSize());
+    }
+    newGame(game.getWName(), game.getBName(), game.getHandi(), game.getKomi());
+    if (game.getWRank() != -999.0f) {  // i.e. it was set
+      gm.setWRank(game.getWRank());
+    }
+    if (game.getBRank() != -999.0f) {
+      gm.setBRank(game.getBRank());
+    }
+    gm.setGameName(game.getGameName());
+    gm.setGameEvent(game.getGameEvent());
+    gm.setGameResult(game.getGameResult());
+    gm.setDate(game.getDate());
+    gm.setPlace(game.getPlace());
+    gm.setGameNotes(game.getGameNotes());
+    gm.setRuleSet(game.getRuleSet());
+
+    Move node = game.movesRoot();
+    while (true) {
+      Move next = node.numChildren() == 0 ? null : node.next(0);
+      if (node.isMove()) {
+        if (node.isWhite() != isWhiteMove()) {
+          throw new IllegalMoveException(PointOfPlay.of(node.getX(), node.getY()), positions.get(currPos));
+        }
+        doMove(node.getX(), node.getY());
+      } else {
+        List<PointOfPlay>[] setup = node.getSetupInfo();
+        if (!setup[0].isEmpty() || !setup[1].isEmpty() || !setup[2].isEmpty()) {
+          boolean blackToMove = next != null && next.isMove()
+              ? next.isBlack() : node.getColorNextMove() != Move.MOVE_WHITE;
+          setUp(setup[2], setup[1], setup[0], blackToMove);
+        }
+      }
+      if (next == null) {
+        return;
+      }
+      node = next;
+    }
+  }
+
+  // Rebuild the tracked groups and the position history after the positions
+  // changed other than by playing a stone.
+  private void positionsReplaced() {
+    if (groups != null) {
+      groups.reset(positions.get(currPos));
+    }
+    history.clear();
+    positions.forEach(p -> history.add(p.getHash()));
+    current = positions.get(currPos);
   }
 }
 
@@ -205,7 +205,8 @@ public class Game {
 
   public void doSetup(char type, int xcoor, int ycoor, boolean blackToMove) {
     if (!currMove.isSetup()) {
-      currMove = new Move(prevMove);
+      prevMove = currMove;
+      currMove = new Move(currMove);
     }
     switch (type) {
       case Move.EMPTY      : currMove.setupEmpty(xcoor,ycoor); break;
@@ -0,0 +1,244 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of the groups (chains) of stones on a board and their
+ * liberties as stones are played, so that captures can be found without
+ * flood filling the board.
+ * <p>
+ * Each chain is a circular list of its stones threaded through
+ * <code>next</code>, and every stone records the head of its chain. The head
+ * holds the number of stones in the chain, and its liberties as rows of bit
+ * fields laid out the same way as those in {@link Position}, along with a
+ * running count of them. Playing a stone therefore costs O(1) to update the
+ * neighboring chains' liberties, plus the size of the smaller chain when two
+ * chains merge, plus the size of any chain that is captured.
+ * <p>
+ * Points are indexed as <code>y * size + x</code>.
+ *
+ * @see Board#Board(boolean)
+ */
+final class GroupTracker {
+
+  private static final byte EMPTY = 0;
+  private static final byte BLACK = 1;
+  private static final byte WHITE = 2;
+
+  private static final int ROWS = Move.MAX_SIZE;
+
+  private final int size;
+  private final byte[] color;
+  private final int[] head;      // head of the chain each stone belongs to
+  private final int[] next;      // next stone in the same chain
+  private final int[] stones;    // number of stones in the chain, by head
+  private final int[] libCount;  // number of liberties of the chain, by head
+  private final int[] libs;      // liberty rows of the chain, ROWS per head
+
+  GroupTracker(int size) {
+    this.size = size;
+    int points = size * size;
+    color = new byte[points];
+    head = new int[points];
+    next = new int[points];
+    stones = new int[points];
+    libCount = new int[points];
+    libs = new int[points * ROWS];
+  }
+
+  /**
+   * Discard all tracked chains and rebuild them from a position. This is
+   * needed whenever the board changes other than by playing a stone, such as
+   * for setup or undo.
+   *
+   * @param pos the position now on the board
+   */
+  void reset(Position pos) {
+    Arrays.fill(color, EMPTY);
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        if (pos.stoneAt(x, y)) {
+          newChain(x, y, pos.blackAt(x, y) ? BLACK : WHITE);
+        }
+      }
+    }
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        int p = y * size + x;
+        if (color[p] != EMPTY) {
+          connect(p, x, y + 1);
+          connect(p, x + 1, y);
+          connect(p, x, y - 1);
+          connect(p, x - 1, y);
+        }
+      }
+    }
+  }
+
+  /**
+   * Record a stone played on an empty point, and remove from the position
+   * any opposing stones that it captures. The move must already have been
+   * found legal.
+   *
+   * @param pos   derives the position the stone has been added to,
+   *              without the stones captured
+   * @param x     the horizontal coordinate of the stone
+   * @param y     the vertical coordinate of the stone
+   * @param white true if the stone is white
+   * @return the number of opposing stones captured
+   */
+  int play(Position.Builder pos, int x, int y, boolean white) {
+    int p = newChain(x, y, white ? WHITE : BLACK);
+    connect(p, x, y + 1);
+    connect(p, x + 1, y);
+    connect(p, x, y - 1);
+    connect(p, x - 1, y);
+    // the point just played is no longer a liberty of anything
+    removeLiberty(head[p], x, y);
+
+    byte opponent = white ? BLACK : WHITE;
+    return captureIfDead(pos, x, y + 1, x, y, opponent)
+        + captureIfDead(pos, x + 1, y, x, y, opponent)
+        + captureIfDead(pos, x, y - 1, x, y, opponent)
+        + captureIfDead(pos, x - 1, y, x, y, opponent);
+  }
+
+  /**
+   * The number of liberties of the chain at x,y. As with
+   * {@link leelawatcher.scorer.AbstractRules#countLibs} an empty point
+   * is counted as a single liberty.
+   */
+  int liberties(int x, int y) {
+    int p = y * size + x;
+    return color[p] == EMPTY ? 1 : libCount[head[p]];
+  }
+
+  /**
+   * The number of stones in the chain at x,y, or 0 for an empty point.
+   */
+  int stones(int x, int y) {
+    int p = y * size + x;
+    return color[p] == EMPTY ? 0 : stones[head[p]];
+  }
+
+  private int newChain(int x, int y, byte c) {
+    int p = y * size + x;
+    color[p] = c;
+    head[p] = p;
+    next[p] = p;
+    stones[p] = 1;
+    libCount[p] = 0;
+    Arrays.fill(libs, p * ROWS, p * ROWS + ROWS, 0);
+    return p;
+  }
+
+  // Give the stone at p's chain the point at x,y as a liberty if it is
+  // empty, or merge the chains if x,y holds a stone of the same color.
+  private void connect(int p, int x, int y) {
+    if (!onBoard(x, y)) {
+      return;
+    }
+    int n = y * size + x;
+    if (color[n] == EMPTY) {
+      addLiberty(head[p], x, y);
+    } else if (color[n] == color[p] && head[n] != head[p]) {
+      merge(head[p], head[n]);
+    }
+  }
+
+  private void merge(int a, int b) {
+    if (stones[a] < stones[b]) {
+      int tmp = a;
+      a = b;
+      b = tmp;
+    }
+    int s = b;
+    do {
+      head[s] = a;
+      s = next[s];
+    } while (s != b);
+    int tmp = next[a];
+    next[a] = next[b];
+    next[b] = tmp;
+    stones[a] += stones[b];
+
+    int count = 0;
+    for (int row = 0; row < ROWS; row++) {
+      libs[a * ROWS + row] |= libs[b * ROWS + row];
+      count += Integer.bitCount(libs[a * ROWS + row]);
+    }
+    libCount[a] = count;
+  }
+
+  private int captureIfDead(Position.Builder pos, int x, int y, int playedX, int playedY, byte opponent) {
+    if (!onBoard(x, y) || color[y * size + x] != opponent) {
+      return 0;
+    }
+    int h = head[y * size + x];
+    removeLiberty(h, playedX, playedY);
+    if (libCount[h] > 0) {
+      return 0;
+    }
+
+    int s = h;
+    do {
+      color[s] = EMPTY;
+      pos.removeStoneAt(s % size, s / size);
+      s = next[s];
+    } while (s != h);
+
+    // every stone next to a captured one belongs to the capturing player,
+    // and gains the emptied point as a liberty.
+    do {
+      int sx = s % size;
+      int sy = s / size;
+      freeLiberty(sx, sy, sx, sy + 1);
+      freeLiberty(sx, sy, sx + 1, sy);
+      freeLiberty(sx, sy, sx, sy - 1);
+      freeLiberty(sx, sy, sx - 1, sy);
+      s = next[s];
+    } while (s != h);
+    return stones[h];
+  }
+
+  private void freeLiberty(int x, int y, int nx, int ny) {
+    if (onBoard(nx, ny) && color[ny * size + nx] != EMPTY) {
+      addLiberty(head[ny * size + nx], x, y);
+    }
+  }
+
+  private void addLiberty(int h, int x, int y) {
+    int i = h * ROWS + y;
+    if ((libs[i] & Position.colMasks[x]) == 0) {
+      libs[i] |= Position.colMasks[x];
+      libCount[h]++;
+    }
+  }
+
+  private void removeLiberty(int h, int x, int y) {
+    int i = h * ROWS + y;
+    if ((libs[i] & Position.colMasks[x]) != 0) {
+      libs[i] &= ~Position.colMasks[x];
+      libCount[h]--;
+    }
+  }
+
+  private boolean onBoard(int x, int y) {
+    return x >= 0 && y >= 0 && x < size && y < size;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+import java.util.Arrays;
+
+/**
+ * The set of {@link Zobrist} hashes of the positions that have occurred in a
+ * game, stored in an open addressed table of primitive longs so that adding
+ * and looking up a hash allocates nothing (other than when the table grows).
+ */
+final class HashHistory {
+
+  private long[] table = new long[1024];
+  private int count;
+  // 0 marks an empty slot, so the hash of the empty board is kept aside
+  private boolean hasZero;
+
+  void add(long hash) {
+    if (hash == 0) {
+      hasZero = true;
+      return;
+    }
+    if (2 * (count + 1) > table.length) {
+      grow();
+    }
+    int mask = table.length - 1;
+    int i = slot(hash, mask);
+    while (table[i] != 0) {
+      if (table[i] == hash) {
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    table[i] = hash;
+    count++;
+  }
+
+  boolean contains(long hash) {
+    if (hash == 0) {
+      return hasZero;
+    }
+    int mask = table.length - 1;
+    int i = slot(hash, mask);
+    while (table[i] != 0) {
+      if (table[i] == hash) {
+        return true;
+      }
+      i = (i + 1) & mask;
+    }
+    return false;
+  }
+
+  void clear() {
+    Arrays.fill(table, 0);
+    count = 0;
+    hasZero = false;
+  }
+
+  private void grow() {
+    long[] old = table;
+    table = new long[old.length * 2];
+    count = 0;
+    for (long hash : old) {
+      if (hash != 0) {
+        add(hash);
+      }
+    }
+  }
+
+  private static int slot(long hash, int mask) {
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+}
@@ -171,8 +171,11 @@ public class MarkablePosition extends Position {
      * and not marked, then continue searching for the group set from the neighbor.
      */
   private void checkNeighbor(PointOfPlay p, int x, int y, Set<PointOfPlay> members, int boardSize) {
-    PointOfPlay dir = new PointOfPlay(x, y);
-    if (isOnBoard(dir, boardSize) && !isMarked(dir)
+    if (x < 0 || y < 0 || x >= boardSize || y >= boardSize) {
+      return;
+    }
+    PointOfPlay dir = PointOfPlay.of(x, y);
+    if (!isMarked(dir)
             && ((blackAt(p) && blackAt(dir))
             || (whiteAt(p) && whiteAt(dir)))) {
       getGroupSet(dir, members, boardSize);
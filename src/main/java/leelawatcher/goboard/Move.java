@@ -456,7 +456,7 @@ public class Move
   }
 
   private void setup(int x, int y, List<PointOfPlay> target, List<PointOfPlay> other1, List<PointOfPlay> other2) {
-    PointOfPlay temp = new PointOfPlay(x, y);
+    PointOfPlay temp = PointOfPlay.of(x, y);
 
     if (this.isMove())             // setup nodes and Moves MUST not be
       return;                      // mixed!
@@ -478,7 +478,7 @@ public class Move
   private void remDup(PointOfPlay temp, List<PointOfPlay> list) {
     for (PointOfPlay thisOne : list) {
       if (thisOne.equals(temp)) {
-        addWhite.remove(thisOne);
+        list.remove(thisOne);
         break;
       }
     }
@@ -555,7 +555,7 @@ public class Move
    * @param y The vertical displacement from the lower left corner
    */
   public void undoSetupEmpty(int x, int y) {
-    PointOfPlay temp = new PointOfPlay(x, y);
+    PointOfPlay temp = PointOfPlay.of(x, y);
 
     if (this.isMove())             // setup nodes and moves MUST not be
       return;                    // mixed!
@@ -578,7 +578,7 @@ public class Move
    * @param y The vertical displacement from the lower left corner
    */
   public void undoSetupWhite(int x, int y) {
-    PointOfPlay temp = new PointOfPlay(x, y);
+    PointOfPlay temp = PointOfPlay.of(x, y);
 
     if (this.isMove())             // setup nodes and Moves MUST not be
       return;                    // mixed!
@@ -602,7 +602,7 @@ public class Move
    * @param y The vertical displacement from the lower left corner
    */
   public void undoSetupBlack(int x, int y) {
-    PointOfPlay temp = new PointOfPlay(x, y);
+    PointOfPlay temp = PointOfPlay.of(x, y);
     Iterator points = addBlack.iterator();
 
     if (this.isMove())             // setup nodes and Moves MUST not be
@@ -0,0 +1,462 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A tree of moves held in parallel arrays of primitives rather than as a
+ * {@link Move} object per node, for keeping long games or many games in
+ * memory.
+ * <p>
+ * Each node is an <code>int</code> index, the root being {@link #ROOT}, and
+ * the methods that navigate and query the tree are those of
+ * <code>Move</code>, taking the node as their first argument. A node costs
+ * 24 bytes: its coordinates, its color and the color to move after it, its
+ * move number, and the indexes of its parent, its first and last children
+ * and its next sibling. A <code>Move</code> costs over 200, most of it in
+ * the lists it allocates for its children and setup points. Setup points
+ * and comments, which few nodes have, are kept apart from the nodes: the
+ * points in one array for the whole tree, which is searched to find those
+ * of a node, and comments in a map.
+ * <p>
+ * Nodes are only ever added. Convert with {@link #copyOf(Move)} and
+ * {@link #toMove()}.
+ */
+public class MoveTree {
+
+  /**
+   * The node at the root of every tree.
+   */
+  public static final int ROOT = 0;
+
+  /**
+   * Returned for a node that does not exist, such as the next sibling of
+   * the last child.
+   */
+  public static final int NONE = -1;
+
+  private static final byte COLOR_ROOT = 'R';
+  private static final byte COLOR_SETUP = 'S';
+
+  // the kind of a setup point, which sorts them as Move.getSetupInfo() does
+  private static final int SETUP_EMPTY = 0;
+  private static final int SETUP_BLACK = 1;
+  private static final int SETUP_WHITE = 2;
+
+  private int size;
+  private byte[] xs;
+  private byte[] ys;
+  private byte[] colors;
+  private byte[] colorsNext;
+  private int[] moveNums;
+  private int[] parents;
+  private int[] firstChildren;
+  private int[] lastChildren;
+  private int[] nextSiblings;
+
+  // setup points as node, then kind << 16 | x << 8 | y
+  private int setupLength;
+  private int[] setup = new int[0];
+
+  private final Map<Integer, String> comments = new HashMap<>();
+
+  /**
+   * Create a tree holding only its root.
+   */
+  public MoveTree() {
+    this(64);
+  }
+
+  /**
+   * Create a tree holding only its root, with room for a number of nodes
+   * before its arrays must grow.
+   *
+   * @param capacity the number of nodes, including the root, expected
+   */
+  public MoveTree(int capacity) {
+    capacity = Math.max(capacity, 1);
+    xs = new byte[capacity];
+    ys = new byte[capacity];
+    colors = new byte[capacity];
+    colorsNext = new byte[capacity];
+    moveNums = new int[capacity];
+    parents = new int[capacity];
+    firstChildren = new int[capacity];
+    lastChildren = new int[capacity];
+    nextSiblings = new int[capacity];
+    // the root is a pass and its own parent, as in Move
+    add(ROOT, Move.PASS, Move.PASS, COLOR_ROOT, 0);
+  }
+
+  /**
+   * Copy a tree of moves.
+   *
+   * @param root the root of the tree to copy
+   * @return a compact copy of the tree
+   */
+  public static MoveTree copyOf(Move root) {
+    MoveTree tree = new MoveTree();
+    copy(root, ROOT, tree);
+    Deque<Move> moves = new ArrayDeque<>();
+    Deque<Integer> nodes = new ArrayDeque<>();
+    moves.push(root);
+    nodes.push(ROOT);
+    while (!moves.isEmpty()) {
+      Move move = moves.pop();
+      int node = nodes.pop();
+      // add all the children at once to keep them in order
+      for (int i = 0; i < move.numChildren(); i++) {
+        Move child = move.next(i);
+        int childNode = child.isMove()
+            ? tree.addMove(node, child.getX(), child.getY(), child.getColor())
+            : tree.addSetup(node);
+        copy(child, childNode, tree);
+        moves.push(child);
+        nodes.push(childNode);
+      }
+    }
+    return tree;
+  }
+
+  private static void copy(Move move, int node, MoveTree tree) {
+    if (!move.isMove()) {
+      List<PointOfPlay>[] setup = move.getSetupInfo();
+      setup[0].forEach(p -> tree.setupEmpty(node, p.getX(), p.getY()));
+      setup[1].forEach(p -> tree.setupBlack(node, p.getX(), p.getY()));
+      setup[2].forEach(p -> tree.setupWhite(node, p.getX(), p.getY()));
+      if (move.getColorNextMove() != 0) {
+        tree.setColorMoveNext(node, move.getColorNextMove());
+      }
+    }
+    if (!move.getComment().isEmpty()) {
+      tree.setComment(node, move.getComment());
+    }
+  }
+
+  /**
+   * Build the tree as <code>Move</code> objects, e.g. to write it with
+   * {@link leelawatcher.sgf.SGFbuilder}.
+   *
+   * @return the root of the copy
+   */
+  public Move toMove() {
+    Move[] moves = new Move[size];
+    moves[ROOT] = new Move();
+    copyTo(ROOT, moves[ROOT]);
+    // parents always come before their children
+    for (int node = ROOT + 1; node < size; node++) {
+      Move parent = moves[parents[node]];
+      moves[node] = isMove(node)
+          ? new Move(getX(node), getY(node), getColor(node), parent)
+          : new Move(parent);
+      copyTo(node, moves[node]);
+    }
+    return moves[ROOT];
+  }
+
+  private void copyTo(int node, Move move) {
+    if (!isMove(node)) {
+      List<PointOfPlay>[] points = getSetupInfo(node);
+      points[0].forEach(p -> move.setupEmpty(p.getX(), p.getY()));
+      points[1].forEach(p -> move.setupBlack(p.getX(), p.getY()));
+      points[2].forEach(p -> move.setupWhite(p.getX(), p.getY()));
+      if (colorsNext[node] != 0) {
+        move.setColorMoveNext(getColorNextMove(node));
+      }
+    }
+    String comment = comments.get(node);
+    if (comment != null) {
+      move.setComment(comment);
+    }
+  }
+
+  /**
+   * The number of nodes in the tree, including the root.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Add a move, as {@link Move#Move(int, int, char, Move)} does.
+   *
+   * @param parent the node the move follows
+   * @param x      the horizontal coordinate, or <code>Move.PASS</code>
+   * @param y      the vertical coordinate, or <code>Move.PASS</code>
+   * @param color  <code>Move.MOVE_BLACK</code> or <code>Move.MOVE_WHITE</code>
+   * @return the new node
+   * @throws IllegalArgumentException if the color is not black or white, or
+   *                                  is that of the parent move
+   */
+  public int addMove(int parent, int x, int y, char color) {
+    if (color != Move.MOVE_BLACK && color != Move.MOVE_WHITE) {
+      throw new IllegalArgumentException("Moves must be black or white!");
+    }
+    if (isMove(parent) && color == colors[parent]) {
+      throw new IllegalArgumentException("Attempted to move the same color twice!");
+    }
+    return add(parent, x, y, (byte) color, moveNums[parent] + 1);
+  }
+
+  /**
+   * Add a setup node, as {@link Move#Move(Move)} does.
+   *
+   * @param parent the node the setup follows
+   * @return the new node
+   */
+  public int addSetup(int parent) {
+    int node = add(parent, Move.SETUP, Move.SETUP, COLOR_SETUP, moveNums[parent]);
+    colorsNext[node] = colorsNext[parent];
+    return node;
+  }
+
+  private int add(int parent, int x, int y, byte color, int moveNum) {
+    if (size == xs.length) {
+      grow();
+    }
+    int node = size++;
+    xs[node] = (byte) x;
+    ys[node] = (byte) y;
+    colors[node] = color;
+    moveNums[node] = moveNum;
+    parents[node] = parent;
+    firstChildren[node] = NONE;
+    lastChildren[node] = NONE;
+    nextSiblings[node] = NONE;
+    if (node != ROOT) {
+      if (firstChildren[parent] == NONE) {
+        firstChildren[parent] = node;
+      } else {
+        nextSiblings[lastChildren[parent]] = node;
+      }
+      lastChildren[parent] = node;
+    }
+    return node;
+  }
+
+  private void grow() {
+    int capacity = xs.length + (xs.length >> 1) + 1;
+    xs = Arrays.copyOf(xs, capacity);
+    ys = Arrays.copyOf(ys, capacity);
+    colors = Arrays.copyOf(colors, capacity);
+    colorsNext = Arrays.copyOf(colorsNext, capacity);
+    moveNums = Arrays.copyOf(moveNums, capacity);
+    parents = Arrays.copyOf(parents, capacity);
+    firstChildren = Arrays.copyOf(firstChildren, capacity);
+    lastChildren = Arrays.copyOf(lastChildren, capacity);
+    nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+  }
+
+  /**
+   * Release the room for nodes that have not been added.
+   */
+  public void trimToSize() {
+    xs = Arrays.copyOf(xs, size);
+    ys = Arrays.copyOf(ys, size);
+    colors = Arrays.copyOf(colors, size);
+    colorsNext = Arrays.copyOf(colorsNext, size);
+    moveNums = Arrays.copyOf(moveNums, size);
+    parents = Arrays.copyOf(parents, size);
+    firstChildren = Arrays.copyOf(firstChildren, size);
+    lastChildren = Arrays.copyOf(lastChildren, size);
+    nextSiblings = Arrays.copyOf(nextSiblings, size);
+    setup = Arrays.copyOf(setup, setupLength);
+  }
+
+  public boolean isRoot(int node) {
+    return colors[node] == COLOR_ROOT;
+  }
+
+  public boolean isSetup(int node) {
+    return colors[node] == COLOR_SETUP;
+  }
+
+  public boolean isMove(int node) {
+    return colors[node] == Move.MOVE_BLACK || colors[node] == Move.MOVE_WHITE;
+  }
+
+  public boolean isBlack(int node) {
+    return colors[node] == Move.MOVE_BLACK;
+  }
+
+  public boolean isWhite(int node) {
+    return colors[node] == Move.MOVE_WHITE;
+  }
+
+  public boolean isPass(int node) {
+    return Move.isPass(xs[node], ys[node]);
+  }
+
+  public int getX(int node) {
+    return xs[node];
+  }
+
+  public int getY(int node) {
+    return ys[node];
+  }
+
+  /**
+   * See {@link Move#getColor()}.
+   */
+  public char getColor(int node) {
+    return (char) colors[node];
+  }
+
+  public int getMoveNum(int node) {
+    return moveNums[node];
+  }
+
+  /**
+   * The parent of a node. The root is its own parent.
+   */
+  public int getParent(int node) {
+    return parents[node];
+  }
+
+  public int numChildren(int node) {
+    int count = 0;
+    for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * The first child of a node, or the node itself if it has none, as
+   * {@link Move#next()}.
+   */
+  public int next(int node) {
+    return firstChildren[node] == NONE ? node : firstChildren[node];
+  }
+
+  /**
+   * A child of a node, the first if there is no such variation, or the node
+   * itself if it has no children, as {@link Move#next(int)}.
+   */
+  public int next(int node, int variation) {
+    int child = firstChildren[node];
+    for (int i = 0; i < variation && child != NONE; i++) {
+      child = nextSiblings[child];
+    }
+    if (child == NONE || variation < 0) {
+      return next(node);
+    }
+    return child;
+  }
+
+  /**
+   * The next child of the parent of a node, or {@link #NONE} if it is the
+   * last. Iterating over the children this way takes constant time per
+   * child, where {@link #next(int, int)} takes time proportional to the
+   * variation.
+   */
+  public int nextSibling(int node) {
+    return nextSiblings[node];
+  }
+
+  /**
+   * See {@link Move#setColorMoveNext(char)}.
+   *
+   * @throws UnsupportedOperationException if the node is a move
+   */
+  public void setColorMoveNext(int node, char nextColor) {
+    if (isMove(node)) {
+      throw new UnsupportedOperationException("Can only set colorNextMove in setup/root Moves!");
+    }
+    colorsNext[node] = (byte) nextColor;
+  }
+
+  public char getColorNextMove(int node) {
+    return (char) colorsNext[node];
+  }
+
+  public void setComment(int node, String comment) {
+    if (comment == null || comment.isEmpty()) {
+      comments.remove(node);
+    } else {
+      comments.put(node, comment);
+    }
+  }
+
+  public String getComment(int node) {
+    return comments.getOrDefault(node, "");
+  }
+
+  /**
+   * See {@link Move#setupEmpty(int, int)}, the setup points of a node are
+   * exclusive as they are there.
+   */
+  public void setupEmpty(int node, int x, int y) {
+    setup(node, SETUP_EMPTY, x, y);
+  }
+
+  public void setupBlack(int node, int x, int y) {
+    setup(node, SETUP_BLACK, x, y);
+  }
+
+  public void setupWhite(int node, int x, int y) {
+    setup(node, SETUP_WHITE, x, y);
+  }
+
+  private void setup(int node, int kind, int x, int y) {
+    if (isMove(node)) {
+      return;
+    }
+    int point = x << 8 | y;
+    for (int i = 0; i < setupLength; i += 2) {
+      if (setup[i] == node && (setup[i + 1] & 0xFFFF) == point) {
+        if (setup[i + 1] >>> 16 == kind) {
+          return;
+        }
+        // a point can only be set up one way
+        System.arraycopy(setup, i + 2, setup, i, setupLength - i - 2);
+        setupLength -= 2;
+        break;
+      }
+    }
+    if (setupLength == setup.length) {
+      setup = Arrays.copyOf(setup, Math.max(16, setupLength * 2));
+    }
+    setup[setupLength++] = node;
+    setup[setupLength++] = kind << 16 | point;
+  }
+
+  /**
+   * The setup points of a node: empty, black and white, as
+   * {@link Move#getSetupInfo()}.
+   */
+  public List<PointOfPlay>[] getSetupInfo(int node) {
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    List<PointOfPlay>[] points = new List[3];
+    for (int kind = 0; kind < points.length; kind++) {
+      points[kind] = new ArrayList<>();
+    }
+    for (int i = 0; i < setupLength; i += 2) {
+      if (setup[i] == node) {
+        int entry = setup[i + 1];
+        points[entry >>> 16].add(PointOfPlay.of(entry >> 8 & 0xFF, entry & 0xFF));
+      }
+    }
+    return points;
+  }
+}
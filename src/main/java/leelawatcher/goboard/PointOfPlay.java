@@ -29,43 +29,61 @@ package leelawatcher.goboard;
  * and a number to the vertical coordinate. That functionality is to be
  * found in the {@link Move} class. This class is an immutable abstract
  * data class.
+ * <p>
+ * Points are obtained from {@link #of(int, int)}, which returns the same
+ * instance every time for each point of a 19x19 board and for a pass, so
+ * those can be compared with <code>==</code> and cost nothing to look up.
+ * Any other coordinates, such as the neighbors of an edge point, get a new
+ * instance that is only <code>equals</code> to others.
  *
  * @author Patrick G. Heck
  * @version 0.1
  */
 
-public class PointOfPlay implements Cloneable
+public class PointOfPlay
 
 {
-  private static int numInstances = 0;
-  private int _numThis;
+  private static final PointOfPlay[] POINTS = new PointOfPlay[Move.MAX_SIZE * Move.MAX_SIZE];
 
-  private int _x;
-  private int _y;
+  static {
+    for (int y = 0; y < Move.MAX_SIZE; y++) {
+      for (int x = 0; x < Move.MAX_SIZE; x++) {
+        POINTS[y * Move.MAX_SIZE + x] = new PointOfPlay(x, y);
+      }
+    }
+  }
 
   /**
-   * Creates a point at the given (cartesian) coordinates.
-   * Only positive coordinates make sense on a go board, so an Illegal
-   * argument exception will be thrown if negatives are passed to this
-   * constructor.
+   * The point of a pass, at <code>Move.PASS</code>,<code>Move.PASS</code>.
+   */
+  public static final PointOfPlay PASS = new PointOfPlay(Move.PASS, Move.PASS);
+
+  private final int _x;
+  private final int _y;
+
+  private PointOfPlay(int xcoor, int ycoor) {
+    _x = xcoor;
+    _y = ycoor;
+  }
+
+  /**
+   * Get the point at the given (cartesian) coordinates.
    *
    * @param xcoor horizontal displacement from the lower left corner
    *              of the board.
    * @param ycoor vertical displacement from the lower left corner of
    *              the board.
-   * @throws IllegalArgumentException if either coordinate is negative
+   * @return the shared instance for a point on a 19x19 board or a pass,
+   * otherwise a new one
    */
-
-  public PointOfPlay(int xcoor, int ycoor) {
-    _numThis = numInstances;
-    numInstances++;
-
-    if ((_x < 0) || (_y < 0)) {
-      String msg = "Can't create negative Point of Play!";
-      throw new IllegalArgumentException(msg);
+  public static PointOfPlay of(int xcoor, int ycoor) {
+    if (xcoor >= 0 && xcoor < Move.MAX_SIZE && ycoor >= 0 && ycoor < Move.MAX_SIZE) {
+      return POINTS[ycoor * Move.MAX_SIZE + xcoor];
     }
-    _x = xcoor;
-    _y = ycoor;
+    if (xcoor == Move.PASS && ycoor == Move.PASS) {
+      return PASS;
+    }
+    return new PointOfPlay(xcoor, ycoor);
   }
 
   /**
@@ -80,6 +98,9 @@ public class PointOfPlay implements Cloneable
    */
 
   public boolean equals(Object aPoint) {
+    if (aPoint == this) {
+      return true;
+    }
     PointOfPlay tmp;
     if (aPoint instanceof PointOfPlay)
       tmp = (PointOfPlay) aPoint;
@@ -160,7 +181,5 @@ public class PointOfPlay implements Cloneable
   public void dPrint() {
     System.out.println("_x=" + _x);
     System.out.println("_y=" + _y);
-    System.out.println("numInstances=" + numInstances);
-    System.out.println("_numThis=" + _numThis);
   }
 }
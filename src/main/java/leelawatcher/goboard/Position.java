@@ -16,7 +16,6 @@
 
 package leelawatcher.goboard;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.stream.IntStream;
 
@@ -67,6 +66,12 @@ import java.util.stream.IntStream;
  * seems worth the effort for a measly 20k of ram or so. Even palmtops have
  * at least a 2 Megabytes (and frequently 8) these days!.
  * <p>
+ * <p>Positions are immutable. A position built from another shares the
+ * stone arrays of the colours it does not change, so most moves cost one
+ * array rather than two, and the board hands out its positions rather than
+ * copies of them. Stones are removed, e.g. when they are captured, by
+ * deriving a new position with a {@link Builder}.
+ * <p>
  * <p>Positions other than an empty board should be built from other positions.
  * this class does not attempt to do any rules checking, so checking for self
  * capture, ko and a stone already there. This lack of checking enables the
@@ -76,7 +81,6 @@ import java.util.stream.IntStream;
  * and increasing the size of the vectors.
  * <p>
  * <p>
- * <p>FIXME: This class probably should be immutable but is not.
  * <p>TODO: Recode this with array of char (or byte) and compare speed. Another
  * possibility is using java1.4 ByteBuffers which would be more flexable for
  * oversized boards, but harder to code.
@@ -90,19 +94,21 @@ import java.util.stream.IntStream;
 
 
 @SuppressWarnings({"WeakerAccess", "unused"})
-public class Position implements Cloneable {
+public class Position {
   public final static int[] colMasks = new int[19];        // bit fields
 
   private static int numInstances = 0;
-  private int numThis;
+  private final int numThis;
 
-  private int moveNum; // to associate this Position with a move in the game.
+  private final int moveNum; // to associate this Position with a move in the game.
 
-  private PointOfPlay lastMove;
+  private final PointOfPlay lastMove;
 
-  private boolean blackToMove;
-  private int[] posBlack = new int[19];  // the Position of black stones
-  private int[] posWhite = new int[19];  // the Position of white stones
+  private final boolean blackToMove;
+  // never written once the position is built, and so shared between positions
+  private final int[] posBlack;  // the Position of black stones
+  private final int[] posWhite;  // the Position of white stones
+  private final long hash;       // Zobrist hash of the stones
 
   static {                                                   // fill up colMasks
     for (int i = 0; i < colMasks.length; i++) {          // with bit fields
@@ -120,13 +126,20 @@ public class Position implements Cloneable {
 
   public Position() {
     numThis = numInstances++;
+    moveNum = 0;
+    lastMove = null;
+    blackToMove = false;
+    posBlack = new int[19];
+    posWhite = new int[19];
+    hash = 0;
   }
 
   /**
    * Create a <code>Position</code> from another <code>Position</code>.
    * <p>
-   * <p> This constructor should create an independent copy of
-   * a position for independent use... Generally the 2 argument constructor
+   * <p> The new position has the same stones as the other, and shares
+   * them with it since neither can change them. Subclasses use this to add
+   * state of their own to a position. Generally the 2 argument constructor
    * is what you want to use.
    *
    * @param basePos The <code>Position</code> from which to create the
@@ -135,9 +148,11 @@ public class Position implements Cloneable {
   protected Position(Position basePos) {
     numThis = numInstances++;
     moveNum = basePos.moveNum;
-    posBlack = basePos.getArrayBlack();
-    posWhite = basePos.getArrayWhite();
+    lastMove = null;
     blackToMove = basePos.blackToMove;
+    posBlack = basePos.posBlack;
+    posWhite = basePos.posWhite;
+    hash = basePos.hash;
   }
 
   /**
@@ -146,8 +161,8 @@ public class Position implements Cloneable {
    * <p>
    * <p> Takes a previous Position and creates a new Position by adding
    * a stone as indicated by the move argument. In most cases this is the
-   * constructor to use. Other constructors may be deprecated once this
-   * class is written to be immutable.
+   * constructor to use. Captures are not made, derive the position without
+   * the captured stones with a {@link Builder}.
    *
    * @param prev  The <code>Position</code> from which to create the
    *              new <code>Position</code>.
@@ -157,43 +172,70 @@ public class Position implements Cloneable {
   public Position(Position prev, Move aMove) {
     numThis = numInstances++;
 
-    posBlack = prev.getArrayBlack(); // start with the last Position
-    posWhite = prev.getArrayWhite();
-
     prev.checkValid();      // make sure previous errors don't propagate
 
     moveNum = aMove.getMoveNum();
 
+    int[] black = prev.posBlack;   // start with the last Position, copying
+    int[] white = prev.posWhite;   // only the arrays the move changes
+    long newHash = prev.hash;
+    boolean toMove = false;
+    PointOfPlay played = null;
+
     if (aMove.isMove())      // now add the new stone
     {
-      lastMove = new PointOfPlay(aMove.getX(), aMove.getY());
+      played = PointOfPlay.of(aMove.getX(), aMove.getY());
       if (aMove.getColor() == 'W') {
-        blackToMove = true;
+        toMove = true;
         if (!aMove.isPass()) {
-          posWhite[aMove.getY()] += colMasks[aMove.getX()];
+          white = prev.getArrayWhite();
+          white[aMove.getY()] += colMasks[aMove.getX()];
+          newHash ^= Zobrist.stone(true, aMove.getX(), aMove.getY());
         }
       } else if (aMove.getColor() == 'B') {
-        blackToMove = false;
         if (!aMove.isPass()) {
-          posBlack[aMove.getY()] += colMasks[aMove.getX()];
+          black = prev.getArrayBlack();
+          black[aMove.getY()] += colMasks[aMove.getX()];
+          newHash ^= Zobrist.stone(false, aMove.getX(), aMove.getY());
         }
       }
     } else if (aMove.isSetup()) {
       List<PointOfPlay>[] tmp = aMove.getSetupInfo();
+      int[] setBlack = black = prev.getArrayBlack();
+      int[] setWhite = white = prev.getArrayWhite();
 
       tmp[0].forEach(p -> {
-        if (this.blackAt(p.getX(), p.getY()))
-          posBlack[p.getY()] ^= colMasks[p.getX()];
-        if (this.whiteAt(p.getX(), p.getY()))
-          posWhite[p.getY()] ^= colMasks[p.getX()];
+        setBlack[p.getY()] &= ~colMasks[p.getX()];
+        setWhite[p.getY()] &= ~colMasks[p.getX()];
       });
-      blackToMove = (aMove.getColorNextMove() == Move.MOVE_BLACK);
+      toMove = (aMove.getColorNextMove() == Move.MOVE_BLACK);
 
-      tmp[1].forEach(p -> posBlack[p.getY()] |= colMasks[p.getX()]);
-
-      tmp[2].forEach(p -> posWhite[p.getY()] |= colMasks[p.getX()]);
+      tmp[1].forEach(p -> {
+        setWhite[p.getY()] &= ~colMasks[p.getX()];
+        setBlack[p.getY()] |= colMasks[p.getX()];
+      });
 
+      tmp[2].forEach(p -> {
+        setBlack[p.getY()] &= ~colMasks[p.getX()];
+        setWhite[p.getY()] |= colMasks[p.getX()];
+      });
     }
+    lastMove = played;
+    blackToMove = toMove;
+    posBlack = black;
+    posWhite = white;
+    hash = aMove.isSetup() ? Zobrist.hash(this) : newHash;
+  }
+
+  // the position a builder has derived
+  private Position(Builder builder) {
+    numThis = numInstances++;
+    moveNum = builder.base.moveNum;
+    lastMove = builder.base.lastMove;
+    blackToMove = builder.base.blackToMove;
+    posBlack = builder.posBlack;
+    posWhite = builder.posWhite;
+    hash = builder.hash;
   }
 
   public PointOfPlay getLastMove() {
@@ -233,8 +275,8 @@ public class Position implements Cloneable {
     }
     //System.out.println("matches player to move");
 
-    aPosBlack = other.getArrayBlack();
-    aPosWhite = other.getArrayWhite();
+    aPosBlack = other.posBlack;
+    aPosWhite = other.posWhite;
 
     //  dPrint();
 
@@ -254,16 +296,20 @@ public class Position implements Cloneable {
   @Override
   public int hashCode() {
     int result = (blackToMove ? 1 : 0);
-    result = 31 * result + Arrays.hashCode(posBlack);
-    result = 31 * result + Arrays.hashCode(posWhite);
+    result = 31 * result + Long.hashCode(hash);
     return result;
   }
 
-  public Object clone() throws CloneNotSupportedException {
-    return super.clone();
+  /**
+   * The {@link Zobrist} hash of the stones in this position. The player to
+   * move does not contribute to the hash.
+   *
+   * @return the exclusive or of the Zobrist keys of every stone
+   */
+  public long getHash() {
+    return hash;
   }
 
-
   public void checkValid() {
     int tmp = 0;
     for (int i = 0; i < colMasks.length; i++) {
@@ -325,15 +371,6 @@ public class Position implements Cloneable {
     return whiteAt(p.getX(), p.getY());
   }
 
-  public void removeStoneAt(int x, int y) {
-    posWhite[y] &= ~colMasks[x];
-    posBlack[y] &= ~colMasks[x];
-  }
-
-  public void removeStoneAt(PointOfPlay p) {
-    removeStoneAt(p.getX(), p.getY());
-  }
-
   public int[] getArrayBlack() {
     int[] temp = new int[19];
     System.arraycopy(this.posBlack, 0, temp, 0, temp.length);
@@ -346,6 +383,36 @@ public class Position implements Cloneable {
     return temp;
   }
 
+  /**
+   * The black stones on one line of the board, without copying.
+   * <p>
+   * Bit x of the result (as masked by colMasks[x]) is on if a black
+   * stone is at x,y.
+   *
+   * @param y the line of the board
+   * @return the bit field of black stones on line y
+   */
+  public int blackRow(int y) {
+    return posBlack[y];
+  }
+
+  /**
+   * The white stones on one line of the board, without copying.
+   * <p>
+   * Bit x of the result (as masked by colMasks[x]) is on if a white
+   * stone is at x,y.
+   *
+   * @param y the line of the board
+   * @return the bit field of white stones on line y
+   */
+  public int whiteRow(int y) {
+    return posWhite[y];
+  }
+
+  public boolean isBlackToMove() {
+    return blackToMove;
+  }
+
   public int getMoveNum() {
     return moveNum;
   }
@@ -357,4 +424,67 @@ public class Position implements Cloneable {
     tmp += "blackToMove=" + blackToMove;
     System.out.println(tmp);
   }
+
+  /**
+   * Derives a position from another by removing stones, as when they are
+   * captured. The stone arrays are copied the first time a stone of that
+   * colour is removed, and shared with the position built.
+   */
+  public static class Builder {
+    private final Position base;
+    private int[] posBlack;
+    private int[] posWhite;
+    private boolean ownBlack;   // false while posBlack is shared
+    private boolean ownWhite;   // false while posWhite is shared
+    private long hash;
+
+    /**
+     * @param base the position to derive from, which does not change
+     */
+    public Builder(Position base) {
+      this.base = base;
+      posBlack = base.posBlack;
+      posWhite = base.posWhite;
+      hash = base.hash;
+    }
+
+    public Builder removeStoneAt(int x, int y) {
+      if ((posBlack[y] & colMasks[x]) != 0) {
+        if (!ownBlack) {
+          posBlack = posBlack.clone();
+          ownBlack = true;
+        }
+        posBlack[y] &= ~colMasks[x];
+        hash ^= Zobrist.stone(false, x, y);
+      } else if ((posWhite[y] & colMasks[x]) != 0) {
+        if (!ownWhite) {
+          posWhite = posWhite.clone();
+          ownWhite = true;
+        }
+        posWhite[y] &= ~colMasks[x];
+        hash ^= Zobrist.stone(true, x, y);
+      }
+      return this;
+    }
+
+    public Builder removeStoneAt(PointOfPlay p) {
+      return removeStoneAt(p.getX(), p.getY());
+    }
+
+    /**
+     * Build the position. The builder may go on to build others, and
+     * copies the arrays again before changing them.
+     *
+     * @return the position as derived so far, or the base position if no
+     * stones were removed
+     */
+    public Position build() {
+      if (posBlack == base.posBlack && posWhite == base.posWhite) {
+        return base;
+      }
+      ownBlack = false;
+      ownWhite = false;
+      return new Position(this);
+    }
+  }
 }
@@ -0,0 +1,78 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.goboard;
+
+import java.util.Random;
+
+/**
+ * Zobrist hashing of the stones on the board.
+ * <p>
+ * Every combination of color and point has a random 64 bit key, and the
+ * hash of a position is the exclusive or of the keys of all the stones on
+ * it. Adding or removing a stone is therefore a single exclusive or, which
+ * lets {@link Position} keep its hash up to date as it changes. The hash
+ * covers the stones only, not the player to move.
+ * <p>
+ * Keys come from a fixed seed so hashes are stable from run to run.
+ */
+public final class Zobrist {
+
+  private static final long[] BLACK = new long[Move.MAX_SIZE * Move.MAX_SIZE];
+  private static final long[] WHITE = new long[Move.MAX_SIZE * Move.MAX_SIZE];
+
+  static {
+    Random random = new Random(0x1ee1a);
+    for (int i = 0; i < BLACK.length; i++) {
+      BLACK[i] = random.nextLong();
+      WHITE[i] = random.nextLong();
+    }
+  }
+
+  private Zobrist() {
+  }
+
+  /**
+   * The key for a stone.
+   *
+   * @param white true for a white stone, false for a black one
+   * @param x     the horizontal coordinate of the stone
+   * @param y     the vertical coordinate of the stone
+   * @return the key to exclusive or into a hash to add or remove the stone
+   */
+  public static long stone(boolean white, int x, int y) {
+    return white ? WHITE[y * Move.MAX_SIZE + x] : BLACK[y * Move.MAX_SIZE + x];
+  }
+
+  /**
+   * Compute the hash of a position from scratch.
+   *
+   * @param pos the position to hash
+   * @return the exclusive or of the keys of every stone in the position
+   */
+  public static long hash(Position pos) {
+    long hash = 0;
+    for (int y = 0; y < Move.MAX_SIZE; y++) {
+      for (int x = 0; x < Move.MAX_SIZE; x++) {
+        if (pos.blackAt(x, y)) {
+          hash ^= BLACK[y * Move.MAX_SIZE + x];
+        } else if (pos.whiteAt(x, y)) {
+          hash ^= WHITE[y * Move.MAX_SIZE + x];
+        }
+      }
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.gui;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.parser.BoardUpdater;
+import leelawatcher.parser.GameEventListener;
+import leelawatcher.sgf.GameSaver;
+import leelawatcher.supervisor.Supervisor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+
+/**
+ * A window showing the board of every instance of autogtp watched by a
+ * {@link Supervisor}, laid out in a grid that is as close to square as
+ * possible.
+ */
+public class BoardGrid {
+
+  private BoardGrid() {
+  }
+
+  /**
+   * Show the grid and start the supervisor.
+   *
+   * @param supervisor the supervisor, not yet started
+   * @param saver      saves each finished game, or null not to save them
+   */
+  public static void start(Supervisor supervisor, GameSaver saver) {
+    List<Supervisor.Instance> instances = supervisor.getInstances();
+    int columns = (int) Math.ceil(Math.sqrt(instances.size()));
+    JPanel grid = new JPanel(new GridLayout(0, columns));
+
+    for (Supervisor.Instance instance : instances) {
+      Board board = new Board(true);
+      BoardView view = new BoardView(board);
+      instance.getParser().addGameEventListener(new BoardUpdater(board, instance.getParser().getMirror()));
+      instance.getParser().addGameEventListener(new EventBridge(new GameEventListener() {
+      }, view::boardChanged));
+      if (saver != null) {
+        instance.getParser().addGameEventListener(new GameEventListener() {
+          @Override
+          public void gameEnded() {
+            saver.save(board.getGame());
+          }
+        });
+      }
+      // BoardView paints its whole area, so the title goes on a wrapper
+      JPanel titled = new JPanel(new BorderLayout());
+      titled.setBorder(BorderFactory.createTitledBorder(instance.getName()));
+      titled.add(view, BorderLayout.CENTER);
+      grid.add(titled);
+    }
+
+    JFrame frame = new JFrame();
+    frame.setContentPane(grid);
+    frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+    frame.setTitle("Leela Watcher");
+    frame.addWindowListener(new WindowAdapter() {
+      @Override
+      public void windowClosing(WindowEvent e) {
+        supervisor.stop();
+        super.windowClosing(e);
+      }
+    });
+    frame.pack();
+    // many boards at their preferred size would not fit on the screen
+    Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+    frame.setSize(Math.min(frame.getWidth(), screen.width), Math.min(frame.getHeight(), screen.height));
+    frame.setVisible(true);
+    supervisor.start();
+  }
+}
@@ -23,14 +23,16 @@
 package leelawatcher.gui;
 
 import leelawatcher.goboard.Board;
-import leelawatcher.goboard.IllegalMoveException;
 import leelawatcher.goboard.Move;
 import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+import leelawatcher.metrics.Counter;
+import leelawatcher.metrics.Histogram;
+import leelawatcher.metrics.Metrics;
 
 import java.awt.*;
-import java.io.File;
-import java.time.format.DateTimeFormatter;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -40,9 +42,24 @@ public class BoardView extends javax.swing.JPanel {
 
   private static final Dimension PREFERRED_SIZE = new Dimension(500, 500);
 
+  private static final int LINES = 19;
+
+  // Beyond this many changed points (e.g. a new game) the regions to repaint
+  // would cover most of the board anyway.
+  private static final int MAX_CLIPPED_POINTS = 32;
+
+  private static final Histogram PAINT_TIME = Metrics.histogram("view.paint.nanos");
+  private static final Counter CHANGES = Metrics.counter("view.changes");
+  private static final Counter POINTS_REPAINTED = Metrics.counter("view.points");
+  private static final Counter FULL_REPAINTS = Metrics.counter("view.full");
+
   private Board theGame;
   private ImageMaker goImages = new ImageMaker();
 
+  // The position as of the last call to boardChanged, only touched by the
+  // thread that reports changes.
+  private Position shown;
+
   /**
    * Creates new form boardView
    */
@@ -64,52 +81,81 @@ public class BoardView extends javax.swing.JPanel {
     int availW = getWidth();
     g.fillRect(0, 0, availW, availH);
 
-    int lines = 19;
-
-    // We have to keep things square so choose the lesser one...
+    int lines = LINES;
 
-    int makeSize = Math.min(availH, availW);
-    makeSize = Math.max(21, makeSize);        // but not too small...
+    int makeSize = boardPixels();
 
-    // Now, we have to draw a whole board in case the GUI also needs some part of
-    // the board painted. (Something may be covered/revealed between the
-    // call to repaint() from placing a stone, and when the GUI got around to
-    // calling paint() for example)
+    // After a move only the changed points are repainted (see boardChanged),
+    // and anything outside the clip is skipped, but the GUI may also need any
+    // other part of the board painted, e.g. when it is uncovered.
 
-    java.awt.image.BufferedImage boardImg = goImages.paintBoard(makeSize, lines, theGame.getCurrPos());
-
-    g.drawImage(boardImg, ((availW - makeSize) / 2), ((availH - makeSize) / 2), this);
+    long start = System.nanoTime();
+    goImages.paintBoard(g, ((availW - makeSize) / 2), ((availH - makeSize) / 2),
+        makeSize, lines, theGame.getCurrPos());
+    PAINT_TIME.record(System.nanoTime() - start);
   }
 
   public void update(java.awt.Graphics g) {
     paint(g);
   }
 
-  public void move(PointOfPlay pop) throws IllegalMoveException {
-    if (pop != null) {
-      theGame.doMove(pop.getX(), pop.getY());
-    } else {
-      // pass
-      theGame.doMove(Move.PASS, Move.PASS);
+  /**
+   * Schedule a repaint of the points on the board whose stones or last move
+   * marker differ from when this method was last called, rather than of the
+   * whole board. May be called from any thread, but only one at a time.
+   */
+  public void boardChanged() {
+    Position current = theGame.getCurrPos();
+    List<PointOfPlay> changed = shown == null ? null : changedPoints(shown, current, LINES);
+    shown = current;
+    CHANGES.increment();
+    if (changed == null || changed.size() > MAX_CLIPPED_POINTS) {
+      FULL_REPAINTS.increment();
+      repaint();
+      return;
+    }
+    POINTS_REPAINTED.add(changed.size());
+    int makeSize = boardPixels();
+    int left = (getWidth() - makeSize) / 2;
+    int top = (getHeight() - makeSize) / 2;
+    for (PointOfPlay point : changed) {
+      Rectangle r = goImages.stoneBounds(makeSize, LINES, point.getX(), point.getY());
+      repaint(left + r.x, top + r.y, r.width, r.height);
+    }
+  }
+
+  /**
+   * Find the points at which the stones differ between two positions, along
+   * with the last move of each, since its marker is drawn or erased.
+   */
+  static List<PointOfPlay> changedPoints(Position before, Position after, int size) {
+    List<PointOfPlay> changed = new ArrayList<>();
+    for (int y = 0; y < size; y++) {
+      int diff = (before.blackRow(y) ^ after.blackRow(y)) | (before.whiteRow(y) ^ after.whiteRow(y));
+      for (; diff != 0; diff &= diff - 1) {
+        changed.add(PointOfPlay.of(Integer.numberOfTrailingZeros(diff), y));
+      }
+    }
+    addLastMove(changed, before.getLastMove());
+    addLastMove(changed, after.getLastMove());
+    return changed;
+  }
+
+  private static void addLastMove(List<PointOfPlay> changed, PointOfPlay lastMove) {
+    if (lastMove != null && !Move.isPass(lastMove.getX(), lastMove.getY())
+        && !changed.contains(lastMove)) {
+      changed.add(lastMove);
     }
-    repaint();
   }
 
-  public void reset() {
-    theGame.newGame("Leela", "Leela", 0, 7.5f);
-    repaint();
+  // We have to keep things square so choose the lesser dimension
+  private int boardPixels() {
+    int makeSize = Math.min(getHeight(), getWidth());
+    return Math.max(21, makeSize);        // but not too small...
   }
 
   @Override
   public Dimension getPreferredSize() {
     return PREFERRED_SIZE;
   }
-
-  void saveGame() {
-    String format = DateTimeFormatter.ISO_INSTANT
-        .format(new Date().toInstant()).replaceAll(":", "_");
-    File file = new File(format + ".sgf");
-    System.out.println("Saving as:" + file);
-    theGame.saveGame(file.getPath());
-  }
 }
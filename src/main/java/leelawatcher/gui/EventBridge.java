@@ -0,0 +1,107 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.gui;
+
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.parser.GameEventListener;
+
+import javax.swing.Timer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Passes the events of a parser to a listener on the event dispatch thread,
+ * a frame at a time.
+ * <p>
+ * Events are queued, without locking, as the parser reports them, and the
+ * event dispatch thread takes all those queued at most {@value #FRAMES}
+ * times a second. It passes each of them on to the listener, in order, and
+ * then repaints the board once if any of them was a move or a new game, so
+ * however fast autogtp plays, the board is painted no more often than that.
+ * <p>
+ * The listener sees the events some time after the parser reported them,
+ * by which time the board may have moved on, so anything that needs the
+ * board as it was when a game ended, such as saving it, must be done by a
+ * listener added to the parser directly.
+ */
+class EventBridge implements GameEventListener {
+
+  // the most frames, each taking the events queued since the last, a second
+  static final int FRAMES = 60;
+
+  private final GameEventListener listener;
+  private final Runnable repaint;
+  private final Queue<Consumer<GameEventListener>> events = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final AtomicBoolean boardChanged = new AtomicBoolean();
+  private final Timer timer;
+
+  /**
+   * @param listener receives the events on the event dispatch thread
+   * @param repaint  shows the board as it is now, run on the event dispatch
+   *                 thread after the events of a frame that changed it
+   */
+  EventBridge(GameEventListener listener, Runnable repaint) {
+    this.listener = listener;
+    this.repaint = repaint;
+    timer = new Timer(1000 / FRAMES, e -> frame());
+    timer.setRepeats(false);
+  }
+
+  @Override
+  public void gameStarted() {
+    queue(GameEventListener::gameStarted, true);
+  }
+
+  @Override
+  public void movePlayed(int moveNumber, String move, PointOfPlay point) {
+    queue(l -> l.movePlayed(moveNumber, move, point), true);
+  }
+
+  @Override
+  public void gameEnded() {
+    queue(GameEventListener::gameEnded, false);
+  }
+
+  @Override
+  public void rawLine(String line) {
+    queue(l -> l.rawLine(line), false);
+  }
+
+  private void queue(Consumer<GameEventListener> event, boolean changesBoard) {
+    events.add(event);
+    if (changesBoard) {
+      boardChanged.set(true);
+    }
+    // the frame after this one will take anything queued while it runs
+    if (scheduled.compareAndSet(false, true)) {
+      timer.start();
+    }
+  }
+
+  private void frame() {
+    scheduled.set(false);
+    Consumer<GameEventListener> event;
+    while ((event = events.poll()) != null) {
+      event.accept(listener);
+    }
+    if (boardChanged.getAndSet(false)) {
+      repaint.run();
+    }
+  }
+}
@@ -49,6 +49,18 @@ public class ImageMaker implements TsbConstants {
   private BufferedImage BoardBackground;
   private Canvas someComp = new Canvas();  // need an image observer...
 
+  // The textured board with its lines and hoshi only depends on its size,
+  // so it is drawn once per size and stones are composited over it.
+  private BufferedImage gridImage;
+  private int gridPixels;
+  private int gridLines;
+
+  // Likewise each color of stone, with its shadow, is drawn once per size
+  // and copied to each point it occupies.
+  private BufferedImage blackStone;
+  private BufferedImage whiteStone;
+  private int stoneSize;
+
   /**
    * Creates new ImageMaker
    */
@@ -143,17 +155,81 @@ public class ImageMaker implements TsbConstants {
         player, stnSize, G);
   }
 
+  /**
+   * Draw a board and the stones of a position on a new image.
+   *
+   * @param pixAvail the width and height of the image, at least 21
+   * @param size     the number of lines on the board
+   * @param pos      the stones to draw
+   * @return the image of the board
+   */
   public BufferedImage paintBoard(int pixAvail, int size, Position pos) {
-    // PixAvail is the number of pixels (square) we have to draw the board.
-    // Size is the number of lines we need to draw.
+    int makeSize = Math.max(21, pixAvail); // but not too small...
+    BufferedImage BoardImg = new BufferedImage(makeSize, makeSize,
+        BufferedImage.TYPE_INT_RGB);
+    Graphics2D BGraphs = BoardImg.createGraphics();
+    paintBoard(BGraphs, 0, 0, makeSize, size, pos);
+    BGraphs.dispose();
+    return BoardImg;
+  }
 
-    int makeSize = pixAvail;
-    makeSize = Math.max(21, makeSize); // but not too small...
+  /**
+   * Draw a board and the stones of a position directly on a graphics
+   * context. The empty board is cached, so for a board of the same size as
+   * the last one drawn this costs one image copy plus the stones.
+   *
+   * @param g        where to draw
+   * @param left     the horizontal pixel at which to draw the board
+   * @param top      the vertical pixel at which to draw the board
+   * @param pixAvail the width and height of the board in pixels
+   * @param size     the number of lines on the board
+   * @param pos      the stones to draw
+   */
+  public void paintBoard(Graphics g, int left, int top, int pixAvail, int size, Position pos) {
+    int makeSize = Math.max(21, pixAvail); // but not too small...
+    g.drawImage(grid(makeSize, size), left, top, someComp);
 
-    //makeSize -= 10;                  // we want to leave a 5 pixel edge
+    Graphics2D BGraphs = (Graphics2D) g.create();
+    BGraphs.translate(left, top);
+    BGraphs.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    float lineSp = makeSize / (float) (size + 1);
+    paintStones(BGraphs, lineSp, size, pos);
+    BGraphs.dispose();
+  }
 
+  /**
+   * Find the pixels that the stone (including its shadow) or last move
+   * marker at a point may cover when drawn by
+   * {@link #paintBoard(Graphics, int, int, int, int, Position)}.
+   *
+   * @param pixAvail the width and height of the board in pixels
+   * @param size     the number of lines on the board
+   * @param x        the horizontal coordinate of the point
+   * @param y        the vertical coordinate of the point
+   * @return the area relative to the top left corner of the board
+   */
+  public Rectangle stoneBounds(int pixAvail, int size, int x, int y) {
+    int makeSize = Math.max(21, pixAvail); // but not too small...
+    float lineSp = makeSize / (float) (size + 1);
+    int stnSize = Math.round(lineSp - 1);
+    int extent = stnSize + (int) (stnSize * shadowOffset) + 1;
+    return new Rectangle(Math.round((lineSp / 2 + x * lineSp)),
+        Math.round((lineSp / 2 + ((size - 1) - y) * lineSp)), extent, extent);
+  }
 
-    // Now, we have to draw a board, so get something to draw on...
+  // the empty board, redrawn only when the size to draw it at changes
+  private BufferedImage grid(int makeSize, int size) {
+    if (gridImage == null || gridPixels != makeSize || gridLines != size) {
+      gridImage = paintGrid(makeSize, size);
+      gridPixels = makeSize;
+      gridLines = size;
+    }
+    return gridImage;
+  }
+
+  private BufferedImage paintGrid(int makeSize, int size) {
+    // makeSize is the number of pixels (square) we have to draw the board.
+    // Size is the number of lines we need to draw.
 
     BufferedImage BoardImg = new BufferedImage(makeSize, makeSize,
         BufferedImage.TYPE_INT_RGB);
@@ -268,16 +344,44 @@ public class ImageMaker implements TsbConstants {
         }
     }
 
+    BGraphs.dispose();
+    return BoardImg;
+  }
+
+  // a stone and its shadow as painted by paintStone at 0,0
+  private BufferedImage paintStoneImage(Color player, int pixSize) {
+    int extent = pixSize + (int) (pixSize * shadowOffset) + 1;
+    BufferedImage stone = new BufferedImage(extent, extent, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = stone.createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    paintStone(0, 0, player, pixSize, g);
+    g.dispose();
+    return stone;
+  }
+
+  private void paintStones(Graphics2D BGraphs, float lineSp, int size, Position pos) {
     int stnSize = Math.round(lineSp - 1);
+    if (blackStone == null || stoneSize != stnSize) {
+      blackStone = paintStoneImage(Color.black, stnSize);
+      whiteStone = paintStoneImage(Color.white, stnSize);
+      stoneSize = stnSize;
+    }
+
+    // only stones that overlap the area being repainted need drawing
+    Rectangle clip = BGraphs.getClipBounds();
+    int extent = blackStone.getWidth();
 
     // render it top down  so shadows work correctly
     for (int x = 0; x < size; x++)
       for (int y = size-1; y >= 0; --y)
-        if (pos.stoneAt(x, y))
-          paintStone(Math.round((lineSp / 2 + x * lineSp)),
-                     Math.round((lineSp / 2 + ((size - 1) - y) * lineSp)),
-                     (pos.blackAt(x, y)) ? Color.black : Color.white,
-                     stnSize, BGraphs);
+        if (pos.stoneAt(x, y)) {
+          int px = Math.round((lineSp / 2 + x * lineSp));
+          int py = Math.round((lineSp / 2 + ((size - 1) - y) * lineSp));
+          if (clip == null || (px < clip.x + clip.width && px + extent > clip.x
+              && py < clip.y + clip.height && py + extent > clip.y)) {
+            BGraphs.drawImage(pos.blackAt(x, y) ? blackStone : whiteStone, px, py, someComp);
+          }
+        }
 
     // mark last move
     PointOfPlay lastMove = pos.getLastMove();
@@ -290,7 +394,5 @@ public class ImageMaker implements TsbConstants {
                          stnSize/(int)(lastPlayedDotScaledDownFactor/2),
                          stnSize/(int)(lastPlayedDotScaledDownFactor/2));
     }
-
-    return BoardImg;
   }
 }
@@ -15,28 +15,28 @@
  */
 package leelawatcher.gui;
 
-import com.google.common.io.Resources;
+import leelawatcher.Main;
 import leelawatcher.goboard.Board;
+import leelawatcher.goboard.PointOfPlay;
 import leelawatcher.parser.AutoGtpOutputParser;
-import org.docopt.Docopt;
+import leelawatcher.parser.BoardUpdater;
+import leelawatcher.parser.GameEventListener;
+import leelawatcher.sgf.GameSaver;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.BufferedInputStream;
-import java.io.File;
 import java.io.IOException;
-import java.net.URL;
-import java.nio.charset.Charset;
 import java.util.Map;
-import java.util.Objects;
 
 public class LeelaWatcher {
   private Board currBoard = new Board();
   private AutoGtpOutputParser parser;
 
   private JTextArea leelaOutputTextArea;
+  private OutputConsole console;
   private JPanel top;
   private BoardView boardView;
   private JScrollPane textScrollPane;
@@ -44,7 +44,7 @@ public class LeelaWatcher {
   private static Process proc;
 
   // flags
-  private static boolean dontSaveGames;
+  private static GameSaver saver;
   private static boolean hideOutputWindow;
 
   private void createUIComponents() {
@@ -52,20 +52,25 @@ public class LeelaWatcher {
   }
 
   public static void main(String[] args) throws IOException {
-    URL usage = Resources.getResource("usage.docopts.txt");
-    String doc = Resources.toString(usage, Charset.forName("UTF-8"));
-    Docopt options = new Docopt(doc);
-    Map<String, Object> optMap = options.parse(args);
+    Main.main(args);
+  }
 
-    if ((boolean) optMap.get("--no-sgf")) {
-      dontSaveGames = true;
-    }
+  /**
+   * Show the board and autogtp's output in a window while watching autogtp.
+   *
+   * @param optMap    the parsed command line options
+   * @param gameSaver saves each finished game, or null not to save them
+   */
+  public static void start(Map<String, Object> optMap, GameSaver gameSaver) {
+    saver = gameSaver;
     if ((boolean) optMap.get("--board-only")) {
       hideOutputWindow = true;
     }
 
 
     LeelaWatcher leelaWatcher = new LeelaWatcher();
+    leelaWatcher.console = new OutputConsole(leelaWatcher.leelaOutputTextArea,
+        Integer.parseInt(String.valueOf(optMap.get("--console-lines"))));
     JFrame frame = new JFrame();
     frame.setContentPane(leelaWatcher.$$$getRootComponent$$$());
     frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
@@ -89,35 +94,21 @@ public class LeelaWatcher {
     frame.setVisible(true);
     SwingUtilities.invokeLater(() -> {
         try {
-          //noinspection SpellCheckingInspection
-          String cmd;
-          Object cmdObj = optMap.get("<cmd>");
-          if (cmdObj != null) {
-            cmd = String.valueOf(cmdObj);
-          } else {
-            cmd = "./autogtp";
-          }
-          System.out.println("cmd is " + cmd);
-          ProcessBuilder pb = new ProcessBuilder(cmd);
-          pb.directory(new File(String.valueOf( optMap.get("<dir>"))));
-          pb.redirectErrorStream(true);
-          proc = pb.start();
-          leelaWatcher.parser = new AutoGtpOutputParser(leelaWatcher.boardView);
-          leelaWatcher.parser.addPropertyChangeListener(evt -> {
-              if ("message".equals(evt.getPropertyName())) {
-                JTextArea ta = leelaWatcher.leelaOutputTextArea;
-                ta.setText(ta.getText() + evt.getNewValue());
-                JScrollBar vertical = leelaWatcher.textScrollPane.getVerticalScrollBar();
-                vertical.setValue(vertical.getMaximum());
-              }
-              if ("inProgress".equals(evt.getPropertyName())) {
-                if (Objects.equals(evt.getNewValue(), false)) {
-                  if (!dontSaveGames) {
-                    leelaWatcher.boardView.saveGame();
-                  }
-                }
+          proc = Main.startAutoGtp(optMap);
+          leelaWatcher.parser = new AutoGtpOutputParser();
+          leelaWatcher.parser.setMirror(Main.outputMirror(optMap));
+          leelaWatcher.parser.addGameEventListener(new BoardUpdater(leelaWatcher.currBoard,
+              leelaWatcher.parser.getMirror()));
+          leelaWatcher.parser.addGameEventListener(new EventBridge(leelaWatcher.new ViewUpdater(),
+              leelaWatcher.boardView::boardChanged));
+          if (saver != null) {
+            leelaWatcher.parser.addGameEventListener(new GameEventListener() {
+              @Override
+              public void gameEnded() {
+                saver.save(leelaWatcher.currBoard.getGame());
               }
             });
+          }
           leelaWatcher.parser.start(new BufferedInputStream(proc.getInputStream()));
         } catch (IOException e) {
           e.printStackTrace();
@@ -125,6 +116,27 @@ public class LeelaWatcher {
       });
   }
 
+  /**
+   * Reports the games in the output window. Runs on the event dispatch
+   * thread, through an {@link EventBridge} which repaints the board.
+   */
+  private class ViewUpdater implements GameEventListener {
+
+    @Override
+    public void gameStarted() {
+      message("New Game Started!\n");
+    }
+
+    @Override
+    public void movePlayed(int moveNumber, String move, PointOfPlay point) {
+      message("Move:" + move + "\n");
+    }
+
+    private void message(String text) {
+      console.append(text);
+    }
+  }
+
   {
     // GUI initializer generated by IntelliJ IDEA GUI Designer
     // >>> IMPORTANT!! <<<
@@ -0,0 +1,108 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.gui;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+
+/**
+ * Shows lines of text, such as autogtp's output, in a text area, keeping
+ * only the most recent of them.
+ * <p>
+ * Lines may be appended from any thread. They wait in a ring buffer until
+ * the event dispatch thread shows them, which it does for all the lines
+ * appended since it last did in one edit of the document, so a burst of
+ * lines costs one update rather than one per line. Lines are added to the
+ * end of the document and the oldest removed from its start, so each line
+ * costs the same however long the console has been running, where
+ * replacing the whole text costs time and memory in proportion to all that
+ * has been shown.
+ */
+class OutputConsole {
+
+  private final JTextArea area;
+  private final int maxLines;
+
+  // lines appended but not yet shown, the oldest at head
+  private final String[] pending;
+  private int head;
+  private int count;
+  private boolean scheduled;
+
+  /**
+   * @param area     where to show the lines
+   * @param maxLines the most lines to keep, older ones are discarded
+   */
+  OutputConsole(JTextArea area, int maxLines) {
+    if (maxLines < 1) {
+      throw new IllegalArgumentException("Must keep at least one line");
+    }
+    this.area = area;
+    this.maxLines = maxLines;
+    // no more lines than are kept can be waiting to be shown
+    pending = new String[maxLines];
+  }
+
+  /**
+   * Append a line to the console. It is shown shortly, on the event
+   * dispatch thread.
+   *
+   * @param line the text of the line, ending with a newline
+   */
+  synchronized void append(String line) {
+    if (count == pending.length) {
+      // it would be removed as soon as it was shown
+      head = (head + 1) % pending.length;
+      count--;
+    }
+    pending[(head + count) % pending.length] = line;
+    count++;
+    if (!scheduled) {
+      scheduled = true;
+      SwingUtilities.invokeLater(this::show);
+    }
+  }
+
+  private void show() {
+    StringBuilder text = new StringBuilder();
+    synchronized (this) {
+      for (int i = 0; i < count; i++) {
+        int index = (head + i) % pending.length;
+        text.append(pending[index]);
+        pending[index] = null;
+      }
+      head = 0;
+      count = 0;
+      scheduled = false;
+    }
+    Document doc = area.getDocument();
+    try {
+      doc.insertString(doc.getLength(), text.toString(), null);
+      // the text after the last newline counts as a line, even when empty
+      Element root = doc.getDefaultRootElement();
+      int excess = root.getElementCount() - 1 - maxLines;
+      if (excess > 0) {
+        doc.remove(0, root.getElement(excess - 1).getEndOffset());
+      }
+    } catch (BadLocationException e) {
+      throw new IllegalStateException(e);
+    }
+    area.setCaretPosition(doc.getLength());
+  }
+}
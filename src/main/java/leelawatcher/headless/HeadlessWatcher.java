@@ -0,0 +1,216 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.headless;
+
+import leelawatcher.Main;
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.parser.AutoGtpOutputParser;
+import leelawatcher.parser.BoardUpdater;
+import leelawatcher.parser.GameEventListener;
+import leelawatcher.parser.OutputMirror;
+import leelawatcher.sgf.GameSaver;
+import leelawatcher.supervisor.Supervisor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches autogtp without a display. The output is played out on a
+ * {@link Board} only, each finished game is handed to a {@link GameSaver} to
+ * be saved as an SGF file and a line of statistics is printed for it.
+ * Nothing in this class or the classes it uses loads AWT or Swing, so one
+ * watcher can cheaply be run per GPU worker on machines with no display.
+ */
+public class HeadlessWatcher {
+
+  private final String name;  // prefixes statistics, may be null
+  private final GameSaver saver;  // null if games are not saved
+  private final PrintStream stats;
+  private final long startNanos = System.nanoTime();
+
+  private int games;
+  private long totalMoves;
+  private int gameMoves;
+  private int illegalMoves;
+
+  /**
+   * Create a watcher.
+   *
+   * @param saver saves each finished game, or null not to save them
+   * @param stats where to print statistics
+   */
+  public HeadlessWatcher(GameSaver saver, PrintStream stats) {
+    this(null, saver, stats);
+  }
+
+  /**
+   * Create a watcher for one of several instances of autogtp.
+   *
+   * @param name  the name of the instance, printed before its statistics
+   * @param saver saves each finished game, or null not to save them
+   * @param stats where to print statistics
+   */
+  public HeadlessWatcher(String name, GameSaver saver, PrintStream stats) {
+    this.name = name;
+    this.saver = saver;
+    this.stats = stats;
+  }
+
+  /**
+   * Run autogtp as directed by the command line and watch it until it exits.
+   *
+   * @param optMap the parsed command line options
+   * @param saver  saves each finished game, or null not to save them
+   * @return the exit status to exit with
+   */
+  public static int start(Map<String, Object> optMap, GameSaver saver) throws IOException {
+    // make sure nothing initializes a display by accident
+    System.setProperty("java.awt.headless", "true");
+    HeadlessWatcher watcher = new HeadlessWatcher(saver, System.out);
+    Process proc = Main.startAutoGtp(optMap);
+    Runtime.getRuntime().addShutdownHook(new Thread(proc::destroyForcibly));
+
+    boolean parsed = watcher.watch(proc.getInputStream(), Main.outputMirror(optMap));
+    if (!parsed) {
+      proc.destroyForcibly();
+    }
+    try {
+      proc.waitFor();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    watcher.printSummary();
+    return parsed ? proc.exitValue() : 1;
+  }
+
+  /**
+   * Watch every instance of autogtp known to a supervisor until they have
+   * all exited.
+   *
+   * @param supervisor the supervisor, not yet started
+   * @param saver      saves each finished game, or null not to save them
+   * @return the exit status to exit with
+   */
+  public static int start(Supervisor supervisor, GameSaver saver) throws InterruptedException {
+    System.setProperty("java.awt.headless", "true");
+    Runtime.getRuntime().addShutdownHook(new Thread(supervisor::stop));
+    List<HeadlessWatcher> watchers = new ArrayList<>();
+    for (Supervisor.Instance instance : supervisor.getInstances()) {
+      HeadlessWatcher watcher = new HeadlessWatcher(instance.getName(), saver, System.out);
+      watcher.listenTo(instance.getParser());
+      watchers.add(watcher);
+    }
+    supervisor.start();
+    supervisor.awaitTermination();
+    watchers.forEach(HeadlessWatcher::printSummary);
+    return 0;
+  }
+
+  /**
+   * Parse output from autogtp on the calling thread until it is exhausted.
+   *
+   * @param autoGtpOutput the output of autogtp
+   * @return false if parsing stopped early because of an error
+   */
+  public boolean watch(InputStream autoGtpOutput) {
+    return watch(autoGtpOutput, null);
+  }
+
+  /**
+   * Parse output from autogtp on the calling thread until it is exhausted,
+   * copying it as it is parsed.
+   *
+   * @param autoGtpOutput the output of autogtp
+   * @param mirror        where to copy the output, or null to copy it to
+   *                      standard out as the parser does by default
+   * @return false if parsing stopped early because of an error
+   */
+  public boolean watch(InputStream autoGtpOutput, OutputMirror mirror) {
+    AutoGtpOutputParser parser = new AutoGtpOutputParser();
+    if (mirror != null) {
+      parser.setMirror(mirror);
+    }
+    listenTo(parser);
+    return parser.run(autoGtpOutput);
+  }
+
+  /**
+   * Play out and record the games found by a parser.
+   *
+   * @param parser the parser to subscribe to
+   */
+  public void listenTo(AutoGtpOutputParser parser) {
+    BoardUpdater updater = new BoardUpdater(new Board(true), parser.getMirror());
+    parser.addGameEventListener(updater);
+    parser.addGameEventListener(new GameEventListener() {
+      @Override
+      public void movePlayed(int moveNumber, String move, PointOfPlay point) {
+        gameMoves++;
+      }
+
+      @Override
+      public void gameEnded() {
+        HeadlessWatcher.this.gameEnded(updater);
+      }
+    });
+  }
+
+  public int getGames() {
+    return games;
+  }
+
+  public long getTotalMoves() {
+    return totalMoves;
+  }
+
+  public int getIllegalMoves() {
+    return illegalMoves;
+  }
+
+  private void gameEnded(BoardUpdater updater) {
+    games++;
+    totalMoves += gameMoves;
+    illegalMoves = updater.getIllegalMoves();
+    String saved = saver != null ? " saved: " + saver.save(updater.getBoard().getGame()) : "";
+    stats.println(prefix() + String.format("Game %d: %d moves, %.1f moves/game, %.1f games/hour, %d illegal%s",
+        games, gameMoves, averageMoves(), gamesPerHour(), illegalMoves, saved));
+    gameMoves = 0;
+  }
+
+  private void printSummary() {
+    stats.println(prefix() + String.format("Watched %d games, %d moves, %.1f moves/game, %.1f games/hour, %d illegal",
+        games, totalMoves, averageMoves(), gamesPerHour(), illegalMoves));
+  }
+
+  private String prefix() {
+    return name == null ? "" : name + ": ";
+  }
+
+  private double averageMoves() {
+    return games == 0 ? 0 : (double) totalMoves / games;
+  }
+
+  private double gamesPerHour() {
+    long elapsed = System.nanoTime() - startNanos;
+    return elapsed == 0 ? 0 : games * (double) TimeUnit.HOURS.toNanos(1) / elapsed;
+  }
+}
@@ -0,0 +1,44 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of something that only goes up, such as bytes read. Counting
+ * from many threads at once is cheap, as they rarely contend.
+ *
+ * @see Metrics#counter(String)
+ */
+public final class Counter {
+
+  private final LongAdder count = new LongAdder();
+
+  Counter() {
+  }
+
+  public void increment() {
+    count.increment();
+  }
+
+  public void add(long amount) {
+    count.add(amount);
+  }
+
+  public long get() {
+    return count.sum();
+  }
+}
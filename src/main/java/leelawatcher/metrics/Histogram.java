@@ -0,0 +1,106 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distribution of some measurement, such as the time taken to save a
+ * game, in nanoseconds. Values are counted in buckets of powers of two, so
+ * recording one costs the same however many have been recorded, and
+ * percentiles are known to within a factor of two. The count, sum and
+ * maximum are exact.
+ *
+ * @see Metrics#histogram(String)
+ */
+public final class Histogram {
+
+  static final int BUCKETS = 64;
+
+  // bucket i counts values from 2^(i-1) up to 2^i - 1, bucket 0 counts 0
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  Histogram() {
+  }
+
+  /**
+   * @param value the measurement, negative values are counted as 0
+   */
+  public void record(long value) {
+    value = Math.max(value, 0);
+    buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long n = getCount();
+    return n == 0 ? 0 : (double) getSum() / n;
+  }
+
+  /**
+   * An upper bound on the given percentile of the values recorded, no more
+   * than twice the true value and no more than the maximum.
+   *
+   * @param percentile between 0 and 100
+   * @return the bound, or 0 if nothing has been recorded
+   */
+  public long getPercentile(double percentile) {
+    long n = getCount();
+    long rank = (long) Math.ceil(n * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank && seen > 0) {
+        return Math.min(upperBound(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * The number of values counted in a bucket.
+   */
+  long getBucket(int bucket) {
+    return buckets.get(bucket);
+  }
+
+  /**
+   * The largest value counted in a bucket.
+   */
+  static long upperBound(int bucket) {
+    // (1L << 63) - 1 is Long.MAX_VALUE
+    return (1L << bucket) - 1;
+  }
+}
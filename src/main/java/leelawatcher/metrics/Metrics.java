@@ -0,0 +1,199 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The counters and histograms kept by the whole program, by name, such as
+ * <code>parser.bytes</code>. Classes look up those they keep once, e.g. in
+ * a static field, and update them as they work.
+ * <p>
+ * The metrics can be watched with a JMX console such as jconsole, under
+ * {@value #OBJECT_NAME}, and printed periodically on a line of their own.
+ * Each counter is an attribute, as are the count, mean, 50th and 99th
+ * percentiles and maximum of each histogram, named with the suffixes
+ * <code>.count</code>, <code>.mean</code>, <code>.p50</code>,
+ * <code>.p99</code> and <code>.max</code>.
+ */
+public final class Metrics {
+
+  /**
+   * The name the metrics are registered under with JMX.
+   */
+  public static final String OBJECT_NAME = "leelawatcher:type=Metrics";
+
+  // sorted, so that they are listed in a stable order
+  private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+  private static final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+
+  private Metrics() {
+  }
+
+  /**
+   * The counter with a name, created the first time it is asked for.
+   */
+  public static Counter counter(String name) {
+    return counters.computeIfAbsent(name, n -> new Counter());
+  }
+
+  /**
+   * The histogram with a name, created the first time it is asked for.
+   */
+  public static Histogram histogram(String name) {
+    return histograms.computeIfAbsent(name, n -> new Histogram());
+  }
+
+  // every metric by name, sorted by name
+  static Map<String, Counter> counters() {
+    return Collections.unmodifiableMap(counters);
+  }
+
+  static Map<String, Histogram> histograms() {
+    return Collections.unmodifiableMap(histograms);
+  }
+
+  /**
+   * The value of every counter and histogram attribute, by name, sorted by
+   * name.
+   */
+  public static Map<String, Number> snapshot() {
+    Map<String, Number> values = new TreeMap<>();
+    counters.forEach((name, counter) -> values.put(name, counter.get()));
+    histograms.forEach((name, histogram) -> {
+      values.put(name + ".count", histogram.getCount());
+      values.put(name + ".mean", histogram.getMean());
+      values.put(name + ".p50", histogram.getPercentile(50));
+      values.put(name + ".p99", histogram.getPercentile(99));
+      values.put(name + ".max", histogram.getMax());
+    });
+    return values;
+  }
+
+  /**
+   * Every counter and histogram attribute on one line, as
+   * <code>name=value</code> pairs.
+   */
+  public static String summary() {
+    StringBuilder line = new StringBuilder("Metrics:");
+    snapshot().forEach((name, value) -> {
+      line.append(' ').append(name).append('=');
+      if (value instanceof Double) {
+        line.append(String.format("%.1f", value.doubleValue()));
+      } else {
+        line.append(value);
+      }
+    });
+    return line.toString();
+  }
+
+  /**
+   * Make the metrics visible to JMX consoles. Registering them again does
+   * nothing.
+   */
+  public static void registerMBean() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), new ObjectName(OBJECT_NAME));
+    } catch (InstanceAlreadyExistsException e) {
+      // already registered
+    } catch (JMException e) {
+      System.out.println("Couldn't register metrics with JMX:" + e);
+    }
+  }
+
+  /**
+   * Print the {@link #summary()} periodically, on a daemon thread.
+   *
+   * @param seconds the time between lines
+   * @param out     where to print them
+   */
+  public static void logEvery(long seconds, PrintStream out) {
+    ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "metrics-log");
+      thread.setDaemon(true);
+      return thread;
+    });
+    timer.scheduleAtFixedRate(() -> out.println(summary()), seconds, seconds, TimeUnit.SECONDS);
+  }
+
+  // the attributes are read only, and are whatever metrics exist when asked
+  private static class MetricsMBean implements DynamicMBean {
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      Number value = snapshot().get(attribute);
+      if (value == null) {
+        throw new AttributeNotFoundException(attribute);
+      }
+      return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+      Map<String, Number> values = snapshot();
+      AttributeList list = new AttributeList();
+      for (String attribute : attributes) {
+        if (values.containsKey(attribute)) {
+          list.add(new Attribute(attribute, values.get(attribute)));
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("Metrics are read only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+      throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      List<MBeanAttributeInfo> attributes = new ArrayList<>();
+      snapshot().forEach((name, value) -> attributes.add(new MBeanAttributeInfo(name,
+          value instanceof Double ? "double" : "long", name, true, false, false)));
+      return new MBeanInfo(Metrics.class.getName(), "LeelaWatcher metrics",
+          attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves the {@link Metrics} over HTTP in the Prometheus text format, at
+ * <code>/metrics</code>, so that watchers on many machines can be scraped.
+ * <p>
+ * Metric names are prefixed with <code>leelawatcher_</code> and their dots
+ * become underscores. Counters end in <code>_total</code>, and histograms
+ * have a cumulative <code>_bucket</code> for each power of two up to the
+ * largest value recorded, along with <code>_sum</code> and
+ * <code>_count</code>. Rates such as games per hour, and ratios such as
+ * moves per game, are left to the queries that read them.
+ */
+public class MetricsServer implements AutoCloseable {
+
+  private static final String PREFIX = "leelawatcher_";
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+
+  /**
+   * Start serving.
+   *
+   * @param address where to listen, port 0 for any free port
+   * @throws IOException if the address can't be listened on
+   */
+  public MetricsServer(InetSocketAddress address) throws IOException {
+    server = HttpServer.create(address, 0);
+    server.createContext("/metrics", this::handle);
+    server.start();
+  }
+
+  /**
+   * The port being listened on, e.g. when any free port was asked for.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String method = exchange.getRequestMethod();
+      if (!exchange.getRequestURI().getPath().equals("/metrics")) {
+        exchange.sendResponseHeaders(404, -1);
+      } else if (!method.equals("GET") && !method.equals("HEAD")) {
+        exchange.sendResponseHeaders(405, -1);
+      } else {
+        byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        if (method.equals("HEAD")) {
+          exchange.sendResponseHeaders(200, -1);
+        } else {
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        }
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * All the metrics in the Prometheus text format.
+   */
+  static String scrape() {
+    StringBuilder text = new StringBuilder();
+    String uptime = PREFIX + "uptime_seconds";
+    text.append("# TYPE ").append(uptime).append(" gauge\n");
+    text.append(uptime).append(' ')
+        .append(ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0).append('\n');
+    for (Map.Entry<String, Counter> entry : Metrics.counters().entrySet()) {
+      String name = name(entry.getKey()) + "_total";
+      text.append("# TYPE ").append(name).append(" counter\n");
+      text.append(name).append(' ').append(entry.getValue().get()).append('\n');
+    }
+    for (Map.Entry<String, Histogram> entry : Metrics.histograms().entrySet()) {
+      String name = name(entry.getKey());
+      Histogram histogram = entry.getValue();
+      text.append("# TYPE ").append(name).append(" histogram\n");
+      // read the count first, so buckets filled meanwhile can't exceed it
+      long count = histogram.getCount();
+      long max = histogram.getMax();
+      long cumulative = 0;
+      for (int i = 0; i < Histogram.BUCKETS && cumulative < count; i++) {
+        cumulative = Math.min(count, cumulative + histogram.getBucket(i));
+        text.append(name).append("_bucket{le=\"").append(Histogram.upperBound(i)).append("\"} ")
+            .append(cumulative).append('\n');
+        if (Histogram.upperBound(i) >= max) {
+          break;
+        }
+      }
+      text.append(name).append("_bucket{le=\"+Inf\"} ").append(count).append('\n');
+      text.append(name).append("_sum ").append(histogram.getSum()).append('\n');
+      text.append(name).append("_count ").append(count).append('\n');
+    }
+    return text.toString();
+  }
+
+  private static String name(String metric) {
+    return PREFIX + metric.replace('.', '_').toLowerCase(Locale.ROOT);
+  }
+}
@@ -15,116 +15,220 @@
  */
 package leelawatcher.parser;
 
-import leelawatcher.goboard.IllegalMoveException;
 import leelawatcher.goboard.PointOfPlay;
-import leelawatcher.gui.BoardView;
+import leelawatcher.metrics.Counter;
+import leelawatcher.metrics.Histogram;
+import leelawatcher.metrics.Metrics;
 
-import java.beans.PropertyChangeListener;
-import java.beans.PropertyChangeSupport;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class AutoGtpOutputParser {
 
-  /*
-   * This pattern is meant to report a match for one of 3 groups:
-   * 1. anything ending in 'set.'
-   * (?:[BW]\\s)? is added so that both AutoGTPv11 outputs (B A1) (W F18) and AutoGTPv9 outputs (A1) (F18) will work.
-   */
-  private static final Pattern EVENT =
-          Pattern.compile("^(.*set\\.|\\s*\\d+\\s\\((?:[BW]\\s)?(\\w+)\\)\\s*|Game).*", Pattern.DOTALL);
+  // Bytes requested from autogtp per read. Reads return as soon as any
+  // output is available, so this only bounds the work done per wakeup.
+  private static final int CHUNK_SIZE = 8192;
+
+  // Events are split out of the raw output by AutoGtpTokenizer, and this
+  // pattern then picks the moves out of the events.
+  // (?:[BW]\\s)? is added so that both AutoGTPv11 outputs (B A1) (W F18) and AutoGTPv9 outputs (A1) (F18) will work.
   private static final Pattern MOVE_EVENT =
-          Pattern.compile("\\s*\\d+\\s*\\((?:[BW]\\s)?(\\w+)\\)\\s*");
+          Pattern.compile("\\s*(\\d+)\\s*\\((?:[BW]\\s)?(\\w+)\\)\\s*");
 
   private static final Pattern MOVE = Pattern.compile("(?:(.)(\\d+))|(pass)|(resign)");
-  private BoardView boardView;
+
+  private static final Counter BYTES = Metrics.counter("parser.bytes");
+  private static final Counter EVENTS = Metrics.counter("parser.events");
+  private static final Counter MOVES = Metrics.counter("parser.moves");
+  private static final Counter GAMES = Metrics.counter("parser.games");
+  private static final Counter PASSES = Metrics.counter("parser.passes");
+  private static final Counter RESIGNATIONS = Metrics.counter("parser.resignations");
+  private static final Histogram GAME_MOVES = Metrics.histogram("parser.game.moves");
+  // output still waiting once a block is read, as a sign of falling behind
+  private static final Histogram BACKLOG = Metrics.histogram("parser.backlog.bytes");
+  // from reading the block holding a move to every listener having seen it
+  private static final Histogram MOVE_LAG = Metrics.histogram("parser.move.lag.nanos");
+
   private boolean inProgress = false;
+  private OutputMirror mirror = OutputMirror.standardOut(OutputMirror.Mode.LINE);
 
-  @SuppressWarnings("unused")
-  public String getMessage() {
-    return message;
+  private final List<GameEventListener> listeners = new CopyOnWriteArrayList<>();
+  private final AutoGtpTokenizer tokenizer = new AutoGtpTokenizer();
+  private final StringBuilder line = new StringBuilder(256);
+  private long blockNanos;  // when the block being parsed was read
+  private int gameMoves;
+
+  /**
+   * Dead simple parser for the standard output from leela autogtp. The
+   * parser knows nothing of boards or views, it only reports the games it
+   * finds to its {@link GameEventListener}s.
+   */
+  public AutoGtpOutputParser() {
   }
 
-  private void setMessage(String message) {
-    String old = this.message;
-    this.message = message;
-    support.firePropertyChange("message", old, message);
+  /**
+   * Subscribe to the games found in the output. Listeners are called in the
+   * order they were added, see {@link GameEventListener}.
+   *
+   * @param listener the listener to add
+   */
+  public void addGameEventListener(GameEventListener listener) {
+    listeners.add(listener);
   }
 
-  private String message;
+  public void removeGameEventListener(GameEventListener listener) {
+    listeners.remove(listener);
+  }
 
-  private PropertyChangeSupport support = new PropertyChangeSupport(this);
+  /**
+   * Parse the output on a new thread.
+   *
+   * @param is the output of autogtp
+   */
+  public void start(InputStream is) {
+    Executors.newSingleThreadExecutor().submit(() -> run(is));
+  }
 
+  /**
+   * Parse the output on the calling thread, returning once the output is
+   * exhausted.
+   *
+   * @param is the output of autogtp
+   * @return true if all of the output was parsed, false if reading it or
+   * a listener failed.
+   */
+  public boolean run(InputStream is) {
+    byte[] chunk = new byte[CHUNK_SIZE];
+    int read;
+    try {
+      while ((read = is.read(chunk)) != -1) {
+        BACKLOG.record(is.available());
+        parse(chunk, 0, read);
+      }
+      mirror.flush();
+      return true;
+    } catch (IOException | RuntimeException e) {
+      message("oh noes!!!");
+      mirror.flush();
+      e.printStackTrace();
+    }
+    return false;
+  }
 
   /**
-   * Dead simple parser for the standard output from leela autogtp
+   * Parse the next block of output, for callers that read autogtp's output
+   * themselves rather than handing the stream to {@link #run(InputStream)}.
+   * Blocks must be supplied in order, by one thread at a time.
    *
-   * @param boardView the view on which to reflect the output.
+   * @param bytes  the buffer holding the output
+   * @param offset the index of the first byte of output
+   * @param length the number of bytes of output
    */
-  public AutoGtpOutputParser(BoardView boardView) {
-    this.boardView = boardView;
+  public void parse(byte[] bytes, int offset, int length) {
+    blockNanos = System.nanoTime();
+    BYTES.add(length);
+    mirror.write(bytes, offset, length);
+    splitLines(bytes, offset, length);
+    tokenizer.feed(bytes, offset, length);
+    String event;
+    while ((event = tokenizer.nextEvent()) != null) {
+      EVENTS.increment();
+      handleEvent(event);
+    }
   }
 
-  public void start(InputStream is) {
-    Executors.newSingleThreadExecutor().submit(() -> {
-      StringBuffer buffer = new StringBuffer();
-      int next;
-      try {
-        //noinspection InfiniteLoopStatement
-        while ((next = is.read()) != -1) {
-          buffer.append((char) next);
-          System.out.print("" + (char) next);
-          String event = nextEvent(buffer);
-          if (event == null) {
-            continue;
-          }
-          Matcher m = MOVE_EVENT.matcher(event);
-          if (m.matches()) {
-            if (!isInProgress()) {
-              boardView.reset();
-              System.out.println();
-              message("New Game Started!\n");
-            }
-            setInProgress(true);
-            String mv = m.group(1);
-            System.out.print(" \t");
-            message("Move:" + mv);
-            PointOfPlay pop = parseMove(mv);
-            boardView.move(pop);
-            // we got a move
-          } else {
-            // we got something other than a move, therefore the game is over
-            // setting this to false causes the game to be saved to disk.
-            setInProgress(false);
-          }
-        }
-      } catch (IllegalMoveException e) {
-        message("Illegal move attempted:" + e.getProposedMove());
-        message("Position:");
-        message(e.getPosition().toString());
-      } catch (Exception e) {
-        message("oh noes!!!");
-        e.printStackTrace();
-      }
+  /**
+   * Choose whether autogtp's output, and the parser's commentary on it, is
+   * copied to standard out. Watching several instances of autogtp at once
+   * would otherwise interleave their output there.
+   *
+   * @param echo false to keep standard out quiet, it is true by default
+   */
+  public void setEcho(boolean echo) {
+    setMirror(OutputMirror.standardOut(echo ? OutputMirror.Mode.LINE : OutputMirror.Mode.OFF));
+  }
 
-    });
+  /**
+   * Choose where and when autogtp's output, and the parser's commentary on
+   * it, is copied. By default it is copied to standard out a line at a
+   * time. The mirror is flushed when {@link #run(InputStream)} returns, and
+   * should be flushed by callers of {@link #parse(byte[], int, int)} when
+   * the output ends.
+   *
+   * @param mirror the mirror to copy to
+   */
+  public void setMirror(OutputMirror mirror) {
+    this.mirror = mirror;
   }
 
-  private void message(String x) {
-    System.out.println(x);
-    setMessage(x + "\n");
+  public OutputMirror getMirror() {
+    return mirror;
   }
 
-  private String nextEvent(StringBuffer buff) {
-    Matcher m = EVENT.matcher(buff);
+  private void splitLines(byte[] chunk, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      char c = (char) (chunk[i] & 0xFF);
+      if (c == '\n') {
+        String text = line.toString();
+        line.setLength(0);
+        for (GameEventListener listener : listeners) {
+          listener.rawLine(text);
+        }
+      } else if (c != '\r') {
+        line.append(c);
+      }
+    }
+  }
+
+  private void handleEvent(String event) {
+    Matcher m = MOVE_EVENT.matcher(event);
     if (m.matches()) {
-      String evt = m.group(1);
-      buff.delete(0, evt.length());
-      return evt;
+      if (!isInProgress()) {
+        inProgress = true;
+        gameMoves = 0;
+        mirror.print("\n");
+        message("New Game Started!\n");
+        for (GameEventListener listener : listeners) {
+          listener.gameStarted();
+        }
+      }
+      String mv = m.group(2);
+      mirror.print(" \t");
+      message("Move:" + mv);
+      PointOfPlay pop = parseMove(mv);
+      int moveNumber = Integer.parseInt(m.group(1));
+      for (GameEventListener listener : listeners) {
+        listener.movePlayed(moveNumber, mv, pop);
+      }
+      MOVES.increment();
+      gameMoves++;
+      if ("resign".equals(mv)) {
+        RESIGNATIONS.increment();
+      } else if (pop == null) {
+        PASSES.increment();
+      }
+      MOVE_LAG.record(System.nanoTime() - blockNanos);
+      // we got a move
+    } else if (isInProgress()) {
+      // we got something other than a move, therefore the game is over
+      inProgress = false;
+      GAMES.increment();
+      GAME_MOVES.record(gameMoves);
+      for (GameEventListener listener : listeners) {
+        listener.gameEnded();
+      }
+    }
+  }
+
+  private void message(String x) {
+    if (mirror.getMode() != OutputMirror.Mode.OFF) {
+      mirror.print(x + System.lineSeparator());
     }
-    return null;
   }
 
   PointOfPlay parseMove(String move) {
@@ -143,23 +247,11 @@ public class AutoGtpOutputParser {
       x--;
     }
     int y = Integer.valueOf(yNum) - 1;
-    return new PointOfPlay(x, y);
+    return PointOfPlay.of(x, y);
   }
 
-  public void addPropertyChangeListener(PropertyChangeListener listener) {
-    this.support.addPropertyChangeListener(listener);
-  }
-
-
   @SuppressWarnings("WeakerAccess")
   public boolean isInProgress() {
     return inProgress;
   }
-
-  @SuppressWarnings("WeakerAccess")
-  public void setInProgress(boolean inProgress) {
-    boolean old = this.inProgress;
-    this.inProgress = inProgress;
-    support.firePropertyChange("inProgress", old, inProgress);
-  }
 }
@@ -0,0 +1,132 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the raw standard output of autogtp into events.
+ * <p>
+ * An event is one of:
+ * <ol>
+ * <li>anything ending in 'set.' (typically the engine setup chatter that
+ * precedes each game)</li>
+ * <li>a single move such as <code>" 12 (W Q16)"</code> (AutoGTPv11) or
+ * <code>" 12 (Q16)"</code> (AutoGTPv9)</li>
+ * <li>the word <code>Game</code> at the start of the pending output</li>
+ * </ol>
+ * Bytes are handed over in bulk with {@link #feed(byte[], int, int)} and the
+ * completed events are then pulled with {@link #nextEvent()} until it returns
+ * <code>null</code>. Each byte is examined exactly once, and the move pattern
+ * is only consulted when a closing parenthesis arrives, so the cost of
+ * tokenizing is linear in the length of the output no matter how long autogtp
+ * goes without producing a recognizable event.
+ * <p>
+ * Instances are not thread safe, and the array passed to <code>feed</code>
+ * must not be modified until <code>nextEvent</code> has returned
+ * <code>null</code>.
+ */
+public class AutoGtpTokenizer {
+
+  private static final Pattern MOVE_TOKEN =
+      Pattern.compile("\\s*\\d+\\s\\((?:[BW]\\s)?\\w+\\)");
+
+  private static final String SETTING = "set.";
+  private static final String GAME = "Game";
+
+  private final StringBuilder pending = new StringBuilder(256);
+  private final Matcher moveToken = MOVE_TOKEN.matcher(pending);
+
+  private byte[] input;
+  private int inputPos;
+  private int inputEnd;
+
+  /**
+   * Supply the next block of output to be tokenized. Any bytes remaining
+   * from a previous call to this method that have not yet been consumed by
+   * {@link #nextEvent()} are discarded, so callers should drain all events
+   * before feeding more input.
+   *
+   * @param bytes  the buffer holding the output
+   * @param offset the index of the first byte to tokenize
+   * @param length the number of bytes to tokenize
+   */
+  public void feed(byte[] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length);
+    }
+    input = bytes;
+    inputPos = offset;
+    inputEnd = offset + length;
+  }
+
+  /**
+   * Consume input until the next event is complete.
+   *
+   * @return the text of the event, or null if the input supplied so far
+   * is exhausted before another event could be completed.
+   */
+  public String nextEvent() {
+    while (inputPos < inputEnd) {
+      char c = (char) (input[inputPos++] & 0xFF);
+      pending.append(c);
+      if (isEventEnd(c)) {
+        String event = pending.toString();
+        pending.setLength(0);
+        return event;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The number of characters held over waiting for an event to complete.
+   *
+   * @return the length of the incomplete event
+   */
+  public int pendingLength() {
+    return pending.length();
+  }
+
+  // Only the character just appended can complete an event, so each of the
+  // three event types is checked only when its final character arrives.
+  private boolean isEventEnd(char c) {
+    switch (c) {
+      case '.':
+        return endsWith(SETTING);
+      case ')':
+        return moveToken.reset().matches();
+      case 'e':
+        return pending.length() == GAME.length() && endsWith(GAME);
+      default:
+        return false;
+    }
+  }
+
+  private boolean endsWith(String suffix) {
+    int start = pending.length() - suffix.length();
+    if (start < 0) {
+      return false;
+    }
+    for (int i = 0; i < suffix.length(); i++) {
+      if (pending.charAt(start + i) != suffix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
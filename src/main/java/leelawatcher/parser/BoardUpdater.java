@@ -0,0 +1,110 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.metrics.Counter;
+import leelawatcher.metrics.Histogram;
+import leelawatcher.metrics.Metrics;
+
+/**
+ * Plays the games parsed from autogtp's output on a {@link Board}.
+ * <p>
+ * If a move is illegal the problem is reported through an
+ * {@link OutputMirror}, normally the parser's, and the rest of that game is
+ * ignored, leaving the board at the position before the illegal move until
+ * the next game starts.
+ */
+public class BoardUpdater implements GameEventListener {
+
+  private static final Counter MOVES = Metrics.counter("board.moves");
+  private static final Counter CAPTURES = Metrics.counter("board.captures");
+  private static final Counter ILLEGAL = Metrics.counter("board.illegal");
+  private static final Histogram MOVE_TIME = Metrics.histogram("board.move.nanos");
+
+  private final Board board;
+  private final OutputMirror mirror;
+  private boolean abandoned;
+  private int illegalMoves;
+
+  /**
+   * @param board the board on which to play out the games, reporting
+   *              illegal moves on standard out a line at a time.
+   */
+  public BoardUpdater(Board board) {
+    this(board, OutputMirror.standardOut(OutputMirror.Mode.LINE));
+  }
+
+  /**
+   * @param board  the board on which to play out the games.
+   * @param mirror where illegal moves are reported, so that they are in
+   *               order with (or silenced along with) the output mirrored
+   *               by the parser, see {@link AutoGtpOutputParser#getMirror()}
+   */
+  public BoardUpdater(Board board, OutputMirror mirror) {
+    this.board = board;
+    this.mirror = mirror;
+  }
+
+  @Override
+  public void gameStarted() {
+    board.newGame("Leela", "Leela", 0, 7.5f);
+    abandoned = false;
+  }
+
+  @Override
+  public void movePlayed(int moveNumber, String move, PointOfPlay point) {
+    if (abandoned) {
+      return;
+    }
+    int captured = board.getBlackHasCap() + board.getWhiteHasCap();
+    long start = System.nanoTime();
+    try {
+      if (point != null) {
+        board.doMove(point.getX(), point.getY());
+      } else {
+        // pass
+        board.doMove(Move.PASS, Move.PASS);
+      }
+      MOVE_TIME.record(System.nanoTime() - start);
+      MOVES.increment();
+      CAPTURES.add(board.getBlackHasCap() + board.getWhiteHasCap() - captured);
+    } catch (IllegalMoveException e) {
+      abandoned = true;
+      illegalMoves++;
+      ILLEGAL.increment();
+      String newline = System.lineSeparator();
+      mirror.print("Illegal move attempted:" + e.getProposedMove() + newline
+          + "Position:" + newline + e.getPosition() + newline);
+    }
+  }
+
+  public Board getBoard() {
+    return board;
+  }
+
+  /**
+   * The number of games in which an illegal move was seen.
+   *
+   * @return the number of illegal moves that caused a game to be abandoned
+   */
+  public int getIllegalMoves() {
+    return illegalMoves;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import leelawatcher.goboard.PointOfPlay;
+
+/**
+ * Receives the games parsed from autogtp's output by
+ * {@link AutoGtpOutputParser}.
+ * <p>
+ * Every method is called on the parser's thread, for each listener in the
+ * order in which they were added, so a listener added after a
+ * {@link BoardUpdater} sees the board with the move already played.
+ * Listeners must return promptly: anything slow, and anything that touches
+ * Swing, should be handed off to another thread (e.g. with
+ * <code>SwingUtilities.invokeLater</code>) so that parsing never waits on
+ * the UI. All methods do nothing by default.
+ */
+public interface GameEventListener {
+
+  /**
+   * The first move of a new game has been seen, and is about to be
+   * reported to {@link #movePlayed}.
+   */
+  default void gameStarted() {
+  }
+
+  /**
+   * A move was made.
+   *
+   * @param moveNumber the number autogtp gave the move, starting from 1
+   * @param move       the move as printed by autogtp, e.g. <code>Q16</code>,
+   *                   <code>pass</code> or <code>resign</code>
+   * @param point      the point played, or null for a pass or resignation
+   */
+  default void movePlayed(int moveNumber, String move, PointOfPlay point) {
+  }
+
+  /**
+   * Output other than a move followed the moves of a game, so the game is
+   * over.
+   */
+  default void gameEnded() {
+  }
+
+  /**
+   * A complete line of autogtp's output, without its line terminator. The
+   * lines in each block of output read from autogtp are reported before the
+   * games in that block, so they are only roughly in step with the other
+   * events.
+   *
+   * @param line the text of the line
+   */
+  default void rawLine(String line) {
+  }
+}
@@ -0,0 +1,343 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.Move;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Replays the games in saved autogtp output onto a {@link Board}, for
+ * turning large captured logs into games offline.
+ * <p>
+ * Log files are memory mapped and the move events are picked out of the
+ * mapped bytes by a small state machine, without creating a
+ * <code>String</code> or matching a regular expression per event. The
+ * output is split into events, and the events into games, exactly as
+ * {@link AutoGtpTokenizer} and {@link AutoGtpOutputParser} split them, and
+ * each game is played out as {@link BoardUpdater} plays it: a move that is
+ * illegal, or that can't be read, abandons the rest of its game. The parser
+ * would instead stop at a move it can't read.
+ * <p>
+ * Instances are not thread safe. Output may be supplied in several pieces,
+ * which are treated as one continuous log.
+ */
+public class LogReplayer {
+
+  // the most of a log file mapped at once
+  private static final int MAP_SIZE = 64 << 20;
+
+  // The last 4 characters of an event that ends the game in progress, see
+  // AutoGtpTokenizer.
+  private static final int SETTING = 's' << 24 | 'e' << 16 | 't' << 8 | '.';
+  private static final int GAME = 'G' << 24 | 'a' << 16 | 'm' << 8 | 'e';
+
+  private static final byte[] PASS = {'p', 'a', 's', 's'};
+  private static final byte[] RESIGN = {'r', 'e', 's', 'i', 'g', 'n'};
+
+  // How much of a move event, e.g. " 12 (W Q16)", has been seen. A move
+  // event is all of the output since the previous event, so once the output
+  // can no longer be a move it is DEAD until some other event ends.
+  private static final int START = 0;        // leading white space
+  private static final int NUMBER = 1;       // the move number
+  private static final int SPACE = 2;        // the space after the number
+  private static final int OPEN = 3;         // the opening parenthesis
+  private static final int COLOR = 4;        // B or W, or the start of a move
+  private static final int COLOR_SPACE = 5;  // the space after the color
+  private static final int WORD = 6;         // the move
+  private static final int DEAD = 7;
+
+  private final Board board;
+  private final int mapSize;
+  private Consumer<Board> gameEndedListener = board -> {
+  };
+
+  // the event being scanned
+  private int state = START;
+  private int pendingLength;
+  private int lastFour;
+
+  // the move being scanned
+  private int wordLength;
+  private int first;
+  private int number;
+  private boolean numeric;
+  private boolean pass;
+  private boolean resign;
+
+  private boolean inProgress;
+  private boolean abandoned;
+  private int gameMoves;
+
+  private int games;
+  private long moves;
+  private int illegalMoves;
+  private int unreadableMoves;
+
+  /**
+   * @param board the board on which to play out the games
+   */
+  public LogReplayer(Board board) {
+    this(board, MAP_SIZE);
+  }
+
+  LogReplayer(Board board, int mapSize) {
+    this.board = board;
+    this.mapSize = mapSize;
+  }
+
+  /**
+   * Be told as each game ends, while its final position is on the board.
+   * Games that have not ended when the output runs out are not reported.
+   *
+   * @param listener called with the board when each game ends
+   */
+  public void setGameEndedListener(Consumer<Board> listener) {
+    gameEndedListener = listener;
+  }
+
+  /**
+   * Replay a log file, mapping it into memory a piece at a time.
+   *
+   * @param log the captured output of autogtp
+   * @throws IOException if the log can't be read
+   */
+  public void replay(File log) throws IOException {
+    try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      for (long position = 0; position < size; position += mapSize) {
+        replay(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(mapSize, size - position)));
+      }
+    }
+  }
+
+  /**
+   * Replay the output between the position and limit of a buffer. The
+   * buffer's position is not changed.
+   *
+   * @param output the next piece of autogtp's output
+   */
+  public void replay(ByteBuffer output) {
+    for (int i = output.position(), end = output.limit(); i < end; i++) {
+      scan(output.get(i) & 0xFF);
+    }
+  }
+
+  public Board getBoard() {
+    return board;
+  }
+
+  /**
+   * The number of games that have ended.
+   */
+  public int getGames() {
+    return games;
+  }
+
+  /**
+   * The number of moves in the games that have ended, including any that
+   * were not played because the game was abandoned.
+   */
+  public long getMoves() {
+    return moves;
+  }
+
+  /**
+   * The number of games abandoned because of an illegal move.
+   */
+  public int getIllegalMoves() {
+    return illegalMoves;
+  }
+
+  /**
+   * The number of games abandoned because a move could not be read.
+   */
+  public int getUnreadableMoves() {
+    return unreadableMoves;
+  }
+
+  private void scan(int c) {
+    pendingLength++;
+    lastFour = lastFour << 8 | c;
+    switch (c) {
+      case '.':
+        if (pendingLength >= 4 && lastFour == SETTING) {
+          otherEvent();
+          return;
+        }
+        break;
+      case 'e':
+        if (pendingLength == 4 && lastFour == GAME) {
+          otherEvent();
+          return;
+        }
+        break;
+      case ')':
+        if (state == COLOR || state == WORD) {
+          moveEvent();
+          return;
+        }
+        break;
+      default:
+    }
+
+    switch (state) {
+      case START:
+        state = isSpace(c) ? START : isDigit(c) ? NUMBER : DEAD;
+        break;
+      case NUMBER:
+        state = isDigit(c) ? NUMBER : isSpace(c) ? SPACE : DEAD;
+        break;
+      case SPACE:
+        state = c == '(' ? OPEN : DEAD;
+        break;
+      case OPEN:
+        if (isWord(c)) {
+          startWord(c);
+          state = c == 'B' || c == 'W' ? COLOR : WORD;
+        } else {
+          state = DEAD;
+        }
+        break;
+      case COLOR:
+        if (isSpace(c)) {
+          state = COLOR_SPACE;
+        } else if (isWord(c)) {
+          addToWord(c);
+          state = WORD;
+        } else {
+          state = DEAD;
+        }
+        break;
+      case COLOR_SPACE:
+        if (isWord(c)) {
+          startWord(c);
+          state = WORD;
+        } else {
+          state = DEAD;
+        }
+        break;
+      case WORD:
+        if (isWord(c)) {
+          addToWord(c);
+        } else {
+          state = DEAD;
+        }
+        break;
+      default:
+    }
+  }
+
+  private void startWord(int c) {
+    wordLength = 1;
+    first = c;
+    number = 0;
+    numeric = true;
+    pass = c == PASS[0];
+    resign = c == RESIGN[0];
+  }
+
+  private void addToWord(int c) {
+    if (numeric) {
+      if (isDigit(c) && number < Integer.MAX_VALUE / 10) {
+        number = number * 10 + c - '0';
+      } else {
+        numeric = false;
+      }
+    }
+    pass = pass && wordLength < PASS.length && c == PASS[wordLength];
+    resign = resign && wordLength < RESIGN.length && c == RESIGN[wordLength];
+    wordLength++;
+  }
+
+  private void moveEvent() {
+    endEvent();
+    if (!inProgress) {
+      inProgress = true;
+      abandoned = false;
+      gameMoves = 0;
+      board.newGame("Leela", "Leela", 0, 7.5f);
+    }
+    gameMoves++;
+    if (abandoned) {
+      return;
+    }
+    int x;
+    int y;
+    if ((pass && wordLength == PASS.length) || (resign && wordLength == RESIGN.length)) {
+      x = Move.PASS;
+      y = Move.PASS;
+    } else if (numeric && wordLength > 1) {
+      x = (first >= 'A' && first <= 'Z' ? first + ('a' - 'A') : first) - 'a';
+      // gtp coordinates skip the letter I
+      if (x > 8) {
+        x--;
+      }
+      y = number - 1;
+    } else {
+      x = -1;
+      y = -1;
+    }
+    int size = board.getBoardSize();
+    if (!Move.isPass(x, y) && (x < 0 || x >= size || y < 0 || y >= size)) {
+      unreadableMoves++;
+      abandoned = true;
+      return;
+    }
+    try {
+      board.doMove(x, y);
+    } catch (IllegalMoveException e) {
+      illegalMoves++;
+      abandoned = true;
+    }
+  }
+
+  private void otherEvent() {
+    endEvent();
+    if (inProgress) {
+      inProgress = false;
+      games++;
+      moves += gameMoves;
+      gameEndedListener.accept(board);
+    }
+  }
+
+  private void endEvent() {
+    state = START;
+    pendingLength = 0;
+    lastFour = 0;
+  }
+
+  // the characters matched by \s, \d and \w in AutoGtpTokenizer's patterns
+  private static boolean isSpace(int c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isWord(int c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || isDigit(c);
+  }
+}
@@ -0,0 +1,161 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.parser;
+
+import leelawatcher.metrics.Counter;
+import leelawatcher.metrics.Metrics;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Copies the output read by a parser, and the parser's commentary on it,
+ * somewhere for a person to watch, usually standard out.
+ * <p>
+ * Output is gathered in a buffer and written to a channel in bulk, rather
+ * than through <code>System.out</code>, which takes a lock and, as it
+ * flushes itself, makes a system call for every write.
+ */
+public class OutputMirror {
+
+  // bytes gathered before they must be written
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  // bytes mirrored by every mirror
+  private static final Counter MIRRORED = Metrics.counter("mirror.bytes");
+
+  /**
+   * When mirrored output is written.
+   */
+  public enum Mode {
+    /** Output is not mirrored at all. */
+    OFF,
+    /** Output is written when the buffer fills, and when flushed. */
+    BUFFERED,
+    /** Output is written up to the end of the last complete line. */
+    LINE
+  }
+
+  private final Mode mode;
+  private final WritableByteChannel out;
+  private final ByteBuffer buffer;
+  private long bytesMirrored;
+
+  /**
+   * @param mode when to write the output
+   * @param out  where to write the output
+   */
+  public OutputMirror(Mode mode, WritableByteChannel out) {
+    this.mode = mode;
+    this.out = out;
+    buffer = mode == Mode.OFF ? null : ByteBuffer.allocate(BUFFER_SIZE);
+  }
+
+  /**
+   * Mirror to standard out.
+   *
+   * @param mode when to write the output
+   * @return the mirror
+   */
+  public static OutputMirror standardOut(Mode mode) {
+    return new OutputMirror(mode, new FileOutputStream(FileDescriptor.out).getChannel());
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * The number of bytes mirrored so far, including any not yet written.
+   */
+  public synchronized long getBytesMirrored() {
+    return bytesMirrored;
+  }
+
+  /**
+   * Mirror a block of output.
+   *
+   * @param bytes  the buffer holding the output
+   * @param offset the index of the first byte of output
+   * @param length the number of bytes of output
+   */
+  public synchronized void write(byte[] bytes, int offset, int length) {
+    if (mode == Mode.OFF) {
+      return;
+    }
+    bytesMirrored += length;
+    MIRRORED.add(length);
+    while (length > buffer.remaining()) {
+      int part = buffer.remaining();
+      buffer.put(bytes, offset, part);
+      offset += part;
+      length -= part;
+      drain(buffer.position());
+    }
+    buffer.put(bytes, offset, length);
+    if (mode == Mode.LINE) {
+      // anything after the last newline is the start of a line still to come
+      for (int i = buffer.position() - 1; i >= buffer.position() - length; i--) {
+        if (buffer.get(i) == '\n') {
+          drain(i + 1);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Mirror some text, as the parser comments on the output.
+   *
+   * @param text the text to mirror
+   */
+  public void print(String text) {
+    if (mode != Mode.OFF) {
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      write(bytes, 0, bytes.length);
+    }
+  }
+
+  /**
+   * Write everything mirrored so far.
+   */
+  public synchronized void flush() {
+    if (mode != Mode.OFF) {
+      drain(buffer.position());
+    }
+  }
+
+  // write the first bytes gathered, keeping the rest
+  private void drain(int end) {
+    int position = buffer.position();
+    buffer.position(0).limit(end);
+    try {
+      while (buffer.hasRemaining()) {
+        out.write(buffer);
+      }
+    } catch (IOException e) {
+      // nothing can be done about it, the output is only for watching
+      System.err.println("Couldn't mirror output:" + e);
+      buffer.position(end);
+    }
+    buffer.limit(position);
+    buffer.compact();
+  }
+}
@@ -20,6 +20,7 @@ package leelawatcher.scorer;
 import leelawatcher.goboard.Board;
 import leelawatcher.goboard.MarkablePosition;
 import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
 
 @SuppressWarnings("WeakerAccess")
 public abstract class AbstractRules implements Rules {
@@ -37,7 +38,15 @@ public abstract class AbstractRules implements Rules {
    * Tests for the presence of a stone at PointOfPlay p on board.
    */
   public boolean isEmpty(PointOfPlay p, Board board) {
-    return !(board.getCurrPos().stoneAt(p));
+    return !(currentPosition(board).stoneAt(p));
+  }
+
+  /**
+   * The current position of the board, shared rather than copied since
+   * positions are immutable.
+   */
+  protected static Position currentPosition(Board board) {
+    return board.getPosition(board.getNumPositions() - 1);
   }
 
   /**
@@ -81,11 +90,11 @@ public abstract class AbstractRules implements Rules {
     }
     if (board.isOnBoard(p)) {
       //System.out.println(p);
-      pos.setMark(new PointOfPlay(p.getX(), p.getY()));
+      pos.setMark(p);
       //System.out.println("On Board:" + p );
       if (pos.stoneAt(p)) {
         // recurse north if we can (plus Y)
-        PointOfPlay dir = new PointOfPlay(p.getX(), p.getY() + 1);
+        PointOfPlay dir = PointOfPlay.of(p.getX(), p.getY() + 1);
         if (board.isOnBoard(dir) && !pos.isMarked(dir)
             && !((pos.blackAt(p) && pos.whiteAt(dir))
             || (pos.whiteAt(p) && pos.blackAt(dir)))) {
@@ -94,7 +103,7 @@ public abstract class AbstractRules implements Rules {
         }
 
         // recurse east if we can (plus X)
-        dir = new PointOfPlay(p.getX() + 1, p.getY());
+        dir = PointOfPlay.of(p.getX() + 1, p.getY());
         if (board.isOnBoard(dir) && !pos.isMarked(dir)
             && !((pos.blackAt(p) && pos.whiteAt(dir))
             || (pos.whiteAt(p) && pos.blackAt(dir)))) {
@@ -103,7 +112,7 @@ public abstract class AbstractRules implements Rules {
         }
 
         // recurse south if we can (minus Y)
-        dir = new PointOfPlay(p.getX(), p.getY() - 1);
+        dir = PointOfPlay.of(p.getX(), p.getY() - 1);
         if (board.isOnBoard(dir) && !pos.isMarked(dir)
             && !((pos.blackAt(p) && pos.whiteAt(dir))
             || (pos.whiteAt(p) && pos.blackAt(dir)))) {
@@ -112,7 +121,7 @@ public abstract class AbstractRules implements Rules {
         }
 
         // recurse west if we can (minus X)
-        dir = new PointOfPlay(p.getX() - 1, p.getY());
+        dir = PointOfPlay.of(p.getX() - 1, p.getY());
         if (board.isOnBoard(dir) && !pos.isMarked(dir)
             && !((pos.blackAt(p) && pos.whiteAt(dir))
             || (pos.whiteAt(p) && pos.blackAt(dir)))) {
@@ -0,0 +1,41 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.scorer;
+
+/**
+ * The repetitions of earlier positions that {@link QuickRules} forbids.
+ */
+public enum KoRule {
+
+  /**
+   * A move may not recreate the position from before the opponent's last
+   * move, i.e. a single stone ko may not be retaken immediately.
+   */
+  SIMPLE,
+
+  /**
+   * A move may not recreate the stones of any earlier position in the game,
+   * whichever player was to move in it. This is the rule Leela Zero plays
+   * under, so it is the default.
+   */
+  POSITIONAL,
+
+  /**
+   * A move may not recreate any earlier position in the game in which the
+   * same player was to move.
+   */
+  SITUATIONAL
+}
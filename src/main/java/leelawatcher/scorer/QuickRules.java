@@ -16,63 +16,68 @@
 
 package leelawatcher.scorer;
 
-import leelawatcher.goboard.*;
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+import leelawatcher.goboard.Zobrist;
 
-import java.util.Iterator;
+import java.util.Arrays;
 
+/**
+ * Rules that forbid self capture and the repetition of earlier positions
+ * according to a {@link KoRule}.
+ * <p>
+ * Moves are evaluated directly against the bit field rows of the current
+ * {@link Position}. The proposed stone is placed, and groups are flood
+ * filled, in scratch rows owned by this object so that checking the
+ * legality of a move allocates nothing. As a consequence an instance must
+ * not be shared between threads.
+ */
 public class QuickRules extends AbstractRules {
+
+  // outcomes of evaluating a proposed move
+  private static final int LEGAL = 0;
+  private static final int OCCUPIED = 1;
+  private static final int SELF_CAPTURE = 2;
+  private static final int KO = 3;
+
+  // Scratch rows laid out like those of Position: one int per line of the
+  // board and the bit colMasks[x] for the point at x on that line.
+  private final int[] own = new int[Move.MAX_SIZE];    // stones of the player moving
+  private final int[] opp = new int[Move.MAX_SIZE];    // stones of the other player
+  private final int[] group = new int[Move.MAX_SIZE];  // result of a flood fill
+  private long capturedHash;  // Zobrist keys of the stones removed from opp
+
+  private final KoRule koRule;
+
+  /**
+   * Create rules that enforce {@link KoRule#POSITIONAL positional} superko.
+   */
   public QuickRules() {
+    this(KoRule.POSITIONAL);
+  }
+
+  /**
+   * Create rules that enforce the supplied ko rule.
+   *
+   * @param koRule the repetitions to forbid
+   */
+  public QuickRules(KoRule koRule) {
     super();
+    this.koRule = koRule;
+  }
+
+  public KoRule getKoRule() {
+    return koRule;
   }
 
   public boolean isLegalMove(PointOfPlay p, Board board) {
-    // it is always legal to pass
-    return p.getX() == Move.PASS || (isEmpty(p, board) && !isSelfCapture(p, board) && !isKo(p, board));
+    return evaluate(p.getX(), p.getY(), board) == LEGAL;
   }
 
   public boolean isSelfCapture(PointOfPlay p, Board board) {
-    // we must build a MarkablePosition that shows the board as it would be
-    // if the stone were placed in order to test if this would result in self
-    // capture (illegal in most rules of the game)
-    Move tmpRoot = new Move();
-    char color = board.isWhiteMove() ? Move.MOVE_WHITE : Move.MOVE_BLACK;
-    Move testMove = new Move(p.getX(), p.getY(), color, tmpRoot);
-    Position tmpPos = new Position(board.getCurrPos(), testMove);
-    MarkablePosition testMPos = new MarkablePosition(tmpPos);
-    //testMPos.dPrint();
-
-    //System.out.println(captureOpponent);
-    PointOfPlay neighbor = new PointOfPlay(p.getX(), p.getY() + 1);
-    boolean captureOpponent = board.isOnBoard(neighbor)
-        && countLibs(neighbor, 0, testMPos, board) == 0
-        && testMPos.colorAt(p) != testMPos.colorAt(neighbor);
-    testMPos.clearMarks();
-    neighbor = new PointOfPlay(p.getX() + 1, p.getY());
-    //System.out.println(captureOpponent);
-    captureOpponent = (captureOpponent
-        || ((board.isOnBoard(neighbor)
-            && (countLibs(neighbor, 0, testMPos, board) == 0))
-            && (testMPos.colorAt(p) != testMPos.colorAt(neighbor))));
-    testMPos.clearMarks();
-    neighbor = new PointOfPlay(p.getX(), p.getY() - 1);
-    //System.out.println(captureOpponent);
-    captureOpponent = (captureOpponent
-        || ((board.isOnBoard(neighbor)
-            && (countLibs(neighbor, 0, testMPos, board) == 0))
-            && (testMPos.colorAt(p) != testMPos.colorAt(neighbor))));
-    testMPos.clearMarks();
-    neighbor = new PointOfPlay(p.getX() - 1, p.getY());
-    //System.out.println(captureOpponent);
-    captureOpponent = (captureOpponent
-        || ((board.isOnBoard(neighbor)
-            && (countLibs(neighbor, 0, testMPos, board) == 0))
-            && (testMPos.colorAt(p) != testMPos.colorAt(neighbor))));
-    testMPos.clearMarks();
-    //testMPos.dPrint();
-    //System.out.println(countLibs(p,0,testMPos));
-    //testMPos.clearMarks();
-    //System.out.println(captureOpponent);
-    return (countLibs(p, 0, testMPos, board) == 0) && !captureOpponent;
+    return evaluate(p.getX(), p.getY(), board) == SELF_CAPTURE;
   }
 
   @Override
@@ -81,80 +86,165 @@ public class QuickRules extends AbstractRules {
   }
 
   public boolean isKo(PointOfPlay p, Board board) {
-    Move tmproot = new Move();
-    int stonesRemoved = 0;
-    char color = Move.MOVE_BLACK;
+    return evaluate(p.getX(), p.getY(), board) == KO;
+  }
 
-    PointOfPlay neighbor;
-    Move testMove;
-    Position tmpPos;
-    MarkablePosition testMPos;
+  /**
+   * Work out the position that would result from the player to move placing
+   * a stone at x,y and classify the move.
+   * <p>
+   * Opposing groups adjacent to x,y are removed if the stone takes their last
+   * liberty. If nothing is removed the stone's own group must still have a
+   * liberty. The result is then checked for a repetition forbidden by the
+   * ko rule, which is reported as ko. For superko the
+   * {@link Zobrist} hash of the result is looked up in the board's history,
+   * so earlier positions are only compared when the hash has been seen.
+   */
+  private int evaluate(int x, int y, Board board) {
+    // it is always legal to pass
+    if (x == Move.PASS) {
+      return LEGAL;
+    }
+    int size = board.getBoardSize();
+    Position pos = currentPosition(board);
+    if (pos.stoneAt(x, y)) {
+      return OCCUPIED;
+    }
+    boolean white = board.isWhiteMove();
+    for (int row = 0; row < size; row++) {
+      own[row] = white ? pos.whiteRow(row) : pos.blackRow(row);
+      opp[row] = white ? pos.blackRow(row) : pos.whiteRow(row);
+    }
+    own[y] |= Position.colMasks[x];
 
-    // we must build a MarkablePosition that shows the board as it would be
-    // if the stone were placed in order to test if this would result in self
-    // capture (illegal in most rules of the game)
+    capturedHash = 0;
+    int captured = captureIfDead(x, y + 1, size, !white)
+        + captureIfDead(x + 1, y, size, !white)
+        + captureIfDead(x, y - 1, size, !white)
+        + captureIfDead(x - 1, y, size, !white);
 
-    if (board.isWhiteMove()) {
-      color = Move.MOVE_WHITE;
+    if (captured == 0) {
+      floodGroup(own, x, y, size);
+      if (!groupHasLiberty(size)) {
+        return SELF_CAPTURE;
+      }
     }
-    testMove = new Move(p.getX(), p.getY(), color, tmproot);
-    tmpPos = new Position(board.getCurrPos(), testMove);
-    testMPos = new MarkablePosition(tmpPos);
-
-    neighbor = new PointOfPlay(p.getX(), p.getY() + 1);
-    if (board.isOnBoard(neighbor)
-        && (countLibs(neighbor, 0, testMPos, board) == 0)
-        && (testMPos.getGroupSet(neighbor,
-        null,
-        board.getBoardSize()).size() == 1)) {
-      //System.out.println("rem + y");
-      ++stonesRemoved;
-      testMPos.removeStoneAt(neighbor);
+    if (koRule == KoRule.SIMPLE) {
+      if (captured == 1 && repeatsPreviousPosition(board, white, size)) {
+        return KO;
+      }
+    } else {
+      long hash = pos.getHash() ^ Zobrist.stone(white, x, y) ^ capturedHash;
+      // after the move it will be black's turn if white is moving
+      if (board.hasOccurred(hash) && repeatsEarlierPosition(board, white, size)) {
+        return KO;
+      }
     }
+    return LEGAL;
+  }
 
-    neighbor = new PointOfPlay(p.getX() + 1, p.getY());
-    if (board.isOnBoard(neighbor)
-        && (countLibs(neighbor, 0, testMPos, board) == 0)
-        && (testMPos.getGroupSet(neighbor,
-        null,
-        board.getBoardSize()).size() == 1)) {
-      //System.out.println("rem + x");
-      ++stonesRemoved;
-      testMPos.removeStoneAt(neighbor);
+  /**
+   * Remove the opposing group at x,y from the scratch rows if it has no
+   * liberties.
+   *
+   * @param oppWhite true if the opposing stones are white
+   * @return the number of stones removed
+   */
+  private int captureIfDead(int x, int y, int size, boolean oppWhite) {
+    if (x < 0 || y < 0 || x >= size || y >= size
+        || (opp[y] & Position.colMasks[x]) == 0) {
+      return 0;
     }
-    neighbor = new PointOfPlay(p.getX(), p.getY() - 1);
-    if (board.isOnBoard(neighbor)
-        && (countLibs(neighbor, 0, testMPos, board) == 0)
-        && (testMPos.getGroupSet(neighbor,
-        null,
-        board.getBoardSize()).size() == 1)) {
-      //System.out.println("rem - y");
-      ++stonesRemoved;
-      testMPos.removeStoneAt(neighbor);
+    floodGroup(opp, x, y, size);
+    if (groupHasLiberty(size)) {
+      return 0;
     }
-    neighbor = new PointOfPlay(p.getX() - 1, p.getY());
-    if (board.isOnBoard(neighbor)
-        && (countLibs(neighbor, 0, testMPos, board) == 0)
-        && (testMPos.getGroupSet(neighbor,
-        null,
-        board.getBoardSize()).size() == 1)) {
-      //System.out.println("rem - x");
-      ++stonesRemoved;
-      testMPos.removeStoneAt(neighbor);
+    int removed = 0;
+    for (int row = 0; row < size; row++) {
+      removed += Integer.bitCount(group[row]);
+      opp[row] &= ~group[row];
+      for (int bits = group[row]; bits != 0; bits &= bits - 1) {
+        capturedHash ^= Zobrist.stone(oppWhite, Integer.numberOfTrailingZeros(bits), row);
+      }
     }
+    return removed;
+  }
 
-    //System.out.println(stonesRemoved);
-    if (stonesRemoved == 1) {
-      for (Iterator i = board.getPosIter(); i.hasNext(); ) {
-        if (i.next().equals(testMPos)) {
-          return true;
+  /**
+   * Fill the group rows with the stones in <code>stones</code> that are
+   * connected to x,y. Each sweep grows the group by at least one point in
+   * every direction it can still grow, so the number of sweeps is bounded
+   * by the length of the group.
+   */
+  private void floodGroup(int[] stones, int x, int y, int size) {
+    Arrays.fill(group, 0, size, 0);
+    group[y] = Position.colMasks[x];
+    boolean grew = true;
+    while (grew) {
+      grew = false;
+      for (int row = 0; row < size; row++) {
+        int spread = adjacent(row, size) | group[row];
+        spread &= stones[row];
+        if (spread != group[row]) {
+          group[row] = spread;
+          grew = true;
         }
       }
     }
+  }
+
+  private boolean groupHasLiberty(int size) {
+    for (int row = 0; row < size; row++) {
+      if ((adjacent(row, size) & ~(own[row] | opp[row])) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // the points on a row that are orthogonally adjacent to the group
+  private int adjacent(int row, int size) {
+    int g = group[row];
+    int result = (g << 1) | (g >>> 1);
+    if (row > 0) {
+      result |= group[row - 1];
+    }
+    if (row < size - 1) {
+      result |= group[row + 1];
+    }
+    return result & ((1 << size) - 1);
+  }
+
+  // only the position before the opponent's last move can be recreated by
+  // retaking a single stone ko
+  private boolean repeatsPreviousPosition(Board board, boolean whiteMoved, int size) {
+    int previous = board.getNumPositions() - 2;
+    return previous >= 0 && sameStones(board.getPosition(previous), whiteMoved, size);
+  }
+
+  private boolean repeatsEarlierPosition(Board board, boolean blackToMove, int size) {
+    // the most recent positions are the most likely to repeat
+    for (int i = board.getNumPositions() - 1; i >= 0; i--) {
+      Position earlier = board.getPosition(i);
+      if ((koRule == KoRule.POSITIONAL || earlier.isBlackToMove() == blackToMove)
+          && sameStones(earlier, blackToMove, size)) {
+        return true;
+      }
+    }
     return false;
   }
-}
 
+  private boolean sameStones(Position earlier, boolean whiteMoved, int size) {
+    for (int row = 0; row < size; row++) {
+      int black = whiteMoved ? opp[row] : own[row];
+      int white = whiteMoved ? own[row] : opp[row];
+      if (earlier.blackRow(row) != black || earlier.whiteRow(row) != white) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
 
 /*
  * $Log$
@@ -0,0 +1,397 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.sgf;
+
+import leelawatcher.archive.GameArchive;
+import leelawatcher.goboard.Game;
+import leelawatcher.metrics.Counter;
+import leelawatcher.metrics.Histogram;
+import leelawatcher.metrics.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves finished games as SGF files, and/or appends them to a
+ * {@link GameArchive}, on a background thread, so that a slow disk never
+ * holds up the thread that is parsing autogtp's output.
+ * <p>
+ * Games wait in a bounded queue. The writer takes every game that is waiting
+ * at once and writes them as a batch, forcing them to disk as directed by
+ * its {@link Sync} policy. If the queue is full when a game is handed over
+ * the game is dropped and reported rather than making the caller wait.
+ * {@link #close()} saves everything still queued.
+ */
+public class GameSaver implements AutoCloseable {
+
+  /**
+   * When saved games are forced to disk with <code>fsync</code>.
+   */
+  public enum Sync {
+
+    /**
+     * Never, the operating system writes them out in its own time.
+     */
+    NEVER,
+
+    /**
+     * Once every game in a batch has been written.
+     */
+    BATCH,
+
+    /**
+     * As soon as each game has been written.
+     */
+    GAME
+  }
+
+  // the most games written before they are forced to disk under Sync.BATCH
+  private static final int MAX_BATCH = 32;
+
+  private static final Pending END = new Pending(null, null);
+
+  private static final Counter SAVED = Metrics.counter("saver.saved");
+  private static final Counter DROPPED = Metrics.counter("saver.dropped");
+  private static final Counter FAILED = Metrics.counter("saver.failed");
+  // writing one game, and from handing it over to it being written and synced
+  private static final Histogram WRITE_TIME = Metrics.histogram("saver.write.nanos");
+  private static final Histogram LATENCY = Metrics.histogram("saver.latency.nanos");
+
+  private final File dir;  // null if SGF files are not written
+  private final GameArchive archive;  // null if games are not archived
+  private final Sync sync;
+  private final BlockingQueue<Pending> queue;
+  private final Thread writer;
+  private final SGFbuilder builder = new SGFbuilder();
+
+  private volatile boolean closed;
+  private String lastName;
+  private int sameName;
+
+  // statistics, guarded by this
+  private int saved;
+  private int dropped;
+  private int failed;
+  private int batches;
+  private int maxQueued;
+  private long totalLatency;
+  private long maxLatency;
+  private boolean archiveUnsynced;  // only touched by the writer thread
+
+  /**
+   * Create a saver that writes SGF files and start its writer thread.
+   *
+   * @param dir      the directory to save games in
+   * @param capacity the most games that may wait to be written
+   * @param sync     when games are forced to disk
+   */
+  public GameSaver(File dir, int capacity, Sync sync) {
+    this(dir, null, capacity, sync);
+  }
+
+  /**
+   * Create a saver and start its writer thread.
+   *
+   * @param dir      the directory to save SGF files in, or null not to
+   *                 write them
+   * @param archive  the archive to append games to, or null not to archive
+   *                 them. It is closed when the saver is.
+   * @param capacity the most games that may wait to be written
+   * @param sync     when games are forced to disk
+   * @throws IllegalArgumentException if both dir and archive are null
+   */
+  public GameSaver(File dir, GameArchive archive, int capacity, Sync sync) {
+    if (dir == null && archive == null) {
+      throw new IllegalArgumentException("Nowhere to save games, need a directory or an archive");
+    }
+    this.dir = dir;
+    this.archive = archive;
+    this.sync = sync;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    writer = new Thread(this::writeGames, "sgf-writer");
+    // close() is what makes sure queued games are not lost
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Queue a game to be saved to an SGF file named for the time at which it
+   * was handed over, and/or to the archive. The game must not be changed
+   * afterwards.
+   *
+   * @param game the finished game
+   * @return the SGF file the game will be saved to, or the archive if no
+   * SGF files are written, or null if the game was dropped
+   */
+  public File save(Game game) {
+    File file = dir == null ? null : new File(dir, nextName());
+    File target = file == null ? archive.getFile() : file;
+    if (closed || !queue.offer(new Pending(game, file))) {
+      synchronized (this) {
+        dropped++;
+      }
+      DROPPED.increment();
+      System.out.println("Not saving " + target + (closed ? ", already closed" : ", too many games waiting"));
+      return null;
+    }
+    synchronized (this) {
+      maxQueued = Math.max(maxQueued, queue.size());
+    }
+    System.out.println("Saving as:" + target);
+    return target;
+  }
+
+  /**
+   * Save the games that are still queued, stop the writer thread and close
+   * the archive. Games handed over afterwards are dropped.
+   * <p>
+   * If the calling thread is interrupted while waiting, this returns with
+   * its interrupt status set, leaving the writer thread to save what it can
+   * and the archive open.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      queue.put(END);
+      writer.join();
+    } catch (InterruptedException e) {
+      System.out.println("Interrupted while saving queued games:" + e);
+      Thread.currentThread().interrupt();
+      return;
+    }
+    if (archive != null) {
+      try {
+        archive.close();
+      } catch (IOException e) {
+        System.out.println("Couldn't close " + archive.getFile() + ":" + e);
+      }
+    }
+  }
+
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  public synchronized int getMaxQueueDepth() {
+    return maxQueued;
+  }
+
+  public synchronized int getSaved() {
+    return saved;
+  }
+
+  public synchronized int getDropped() {
+    return dropped;
+  }
+
+  public synchronized int getFailed() {
+    return failed;
+  }
+
+  /**
+   * The average time from a game being handed over until it had been
+   * written, and forced to disk if the policy calls for it.
+   *
+   * @return the mean latency in milliseconds
+   */
+  public synchronized double getMeanLatencyMillis() {
+    return saved == 0 ? 0 : totalLatency / (double) saved / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public synchronized double getMaxLatencyMillis() {
+    return maxLatency / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * A line summarizing what has been saved, for printing.
+   */
+  public synchronized String report() {
+    return String.format("Saved %d games in %d batches (%d dropped, %d failed), %d queued (max %d), " +
+            "latency %.1f ms mean, %.1f ms max",
+        saved, batches, dropped, failed, getQueueDepth(), maxQueued, getMeanLatencyMillis(), getMaxLatencyMillis());
+  }
+
+  // Names are only made unique amongst the games of this saver, as the
+  // file is not created until it is written.
+  private synchronized String nextName() {
+    String name = DateTimeFormatter.ISO_INSTANT.format(Instant.now()).replaceAll(":", "_");
+    if (name.equals(lastName)) {
+      return name + "-" + (++sameName) + ".sgf";
+    }
+    lastName = name;
+    sameName = 0;
+    return name + ".sgf";
+  }
+
+  private void writeGames() {
+    List<Pending> batch = new ArrayList<>(MAX_BATCH);
+    List<FileOutputStream> unsynced = new ArrayList<>(MAX_BATCH);
+    boolean end = false;
+    // a game may have squeezed in after END while closing
+    while (!end || !queue.isEmpty()) {
+      try {
+        batch.add(queue.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      queue.drainTo(batch, MAX_BATCH - 1);
+      for (Pending pending : batch) {
+        if (pending == END) {
+          end = true;
+        } else {
+          write(pending, unsynced);
+        }
+      }
+      syncAll(unsynced);
+      long now = System.nanoTime();
+      synchronized (this) {
+        if (batch.size() > 1 || batch.get(0) != END) {
+          batches++;
+        }
+        for (Pending pending : batch) {
+          if (pending != END && pending.written) {
+            long latency = now - pending.queued;
+            SAVED.increment();
+            LATENCY.record(latency);
+            saved++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+          }
+        }
+      }
+      batch.clear();
+    }
+  }
+
+  private void write(Pending pending, List<FileOutputStream> unsynced) {
+    long start = System.nanoTime();
+    boolean written = pending.file == null || writeSGF(pending, unsynced);
+    if (archive != null) {
+      written &= append(pending.game);
+    }
+    WRITE_TIME.record(System.nanoTime() - start);
+    if (written) {
+      pending.written = true;
+    } else {
+      synchronized (this) {
+        failed++;
+      }
+      FAILED.increment();
+    }
+  }
+
+  // Write one game, leaving the file open in unsynced if it is to be forced
+  // to disk with the rest of the batch.
+  private boolean writeSGF(Pending pending, List<FileOutputStream> unsynced) {
+    FileOutputStream out = null;
+    try {
+      if (!pending.file.createNewFile()) {
+        System.out.println("Did not create " + pending.file);
+        return false;
+      }
+      out = new FileOutputStream(pending.file);
+      Writer sgf = new BufferedWriter(new OutputStreamWriter(out));
+      builder.writeSGF(pending.game, sgf);
+      sgf.flush();
+      if (sync == Sync.GAME) {
+        out.getFD().sync();
+      }
+      if (sync == Sync.BATCH) {
+        unsynced.add(out);
+        out = null;
+      }
+      return true;
+    } catch (IOException e) {
+      System.out.println("Couldn't save game:" + e);
+      return false;
+    } finally {
+      closeQuietly(out);
+    }
+  }
+
+  private boolean append(Game game) {
+    try {
+      archive.append(game);
+      if (sync == Sync.GAME) {
+        archive.sync();
+      }
+      archiveUnsynced = sync == Sync.BATCH;
+      return true;
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Couldn't archive game:" + e);
+      return false;
+    }
+  }
+
+  private void syncAll(List<FileOutputStream> unsynced) {
+    for (FileOutputStream out : unsynced) {
+      try {
+        out.getFD().sync();
+      } catch (IOException e) {
+        // the data was written, it just may not be on the disk yet
+        System.out.println("Couldn't sync saved game:" + e);
+      } finally {
+        closeQuietly(out);
+      }
+    }
+    unsynced.clear();
+    if (archiveUnsynced) {
+      try {
+        archive.sync();
+      } catch (IOException e) {
+        System.out.println("Couldn't sync " + archive.getFile() + ":" + e);
+      }
+      archiveUnsynced = false;
+    }
+  }
+
+  private static void closeQuietly(FileOutputStream out) {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException e) {
+        System.out.println("Couldn't close saved game:" + e);
+      }
+    }
+  }
+
+  private static class Pending {
+    private final Game game;
+    private final File file;
+    private final long queued = System.nanoTime();
+    private boolean written;  // only touched by the writer thread
+
+    private Pending(Game game, File file) {
+      this.game = game;
+      this.file = file;
+    }
+  }
+}
@@ -0,0 +1,323 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.scorer.KoRule;
+import leelawatcher.scorer.QuickRules;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Checks saved games for illegal moves by reading each one back and
+ * replaying it on a {@link Board} that enforces positional superko, as
+ * Leela Zero plays.
+ * <p>
+ * The files are split between the threads of a fork join pool by halving
+ * the list until each piece is small. Each thread reuses its own parser,
+ * rules and board, and each piece is tallied into its own {@link Report}
+ * which is merged with its sibling's as the pieces are joined, so the
+ * threads share nothing while they work.
+ */
+public class ReplayValidator {
+
+  // the most files validated by one task without splitting it
+  private static final int SPLIT_BELOW = 16;
+
+  /**
+   * Why a game could not be replayed.
+   */
+  public enum Problem {
+    /** The file is not a game that can be replayed. */
+    UNREADABLE,
+    /** A move by the player whose turn it isn't. */
+    OUT_OF_TURN,
+    /** A stone played on another. */
+    OCCUPIED,
+    /** A stone played where it would have no liberties. */
+    SELF_CAPTURE,
+    /** A ko retaken immediately. */
+    KO,
+    /** A move that repeats an earlier position, but not the last but one. */
+    SUPERKO
+  }
+
+  private final int threads;
+  private final ThreadLocal<Replayer> replayers = ThreadLocal.withInitial(Replayer::new);
+
+  // what each thread validates with
+  private static class Replayer {
+    private final SGFparser parser = new SGFparser();
+    private final QuickRules rules = new QuickRules(KoRule.POSITIONAL);
+    private final QuickRules simpleKo = new QuickRules(KoRule.SIMPLE);
+    private final Board board = new Board(rules, true);
+  }
+
+  /**
+   * @param threads the number of games to replay at once
+   */
+  public ReplayValidator(int threads) {
+    this.threads = threads;
+  }
+
+  /**
+   * Validate every file in a directory whose name ends in
+   * <code>.sgf</code>.
+   *
+   * @param dir the directory holding the files
+   * @return what was found
+   * @throws IOException if the directory can't be listed
+   */
+  public Report validate(File dir) throws IOException {
+    File[] sgfs = dir.listFiles((d, name) -> name.toLowerCase(Locale.ROOT).endsWith(".sgf"));
+    if (sgfs == null) {
+      throw new IOException("Couldn't list " + dir);
+    }
+    // so that the problems are listed in the order of the files
+    Arrays.sort(sgfs);
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    long start = System.nanoTime();
+    try {
+      Report report = pool.invoke(new Validation(sgfs, 0, sgfs.length));
+      report.nanos = System.nanoTime() - start;
+      return report;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private class Validation extends RecursiveTask<Report> {
+    private static final long serialVersionUID = 1L;
+
+    private final File[] sgfs;
+    private final int from;
+    private final int to;
+
+    private Validation(File[] sgfs, int from, int to) {
+      this.sgfs = sgfs;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Report compute() {
+      if (to - from < SPLIT_BELOW) {
+        Report report = new Report();
+        for (int i = from; i < to; i++) {
+          validate(sgfs[i], report);
+        }
+        return report;
+      }
+      int middle = (from + to) >>> 1;
+      Validation second = new Validation(sgfs, middle, to);
+      second.fork();
+      Report first = new Validation(sgfs, from, middle).compute();
+      return first.merge(second.join());
+    }
+  }
+
+  /**
+   * Validate one file.
+   *
+   * @param sgf    the file to validate
+   * @param report where to count what was found
+   */
+  private void validate(File sgf, Report report) {
+    Replayer replayer = replayers.get();
+    report.files++;
+    Game game;
+    try (Reader in = new FileReader(sgf)) {
+      game = replayer.parser.parse(in);
+    } catch (IOException e) {
+      report.problem(Problem.UNREADABLE, sgf.getName() + ": " + e.getMessage());
+      return;
+    }
+    Board board = replayer.board;
+    try {
+      board.replay(game);
+    } catch (IllegalArgumentException e) {
+      report.problem(Problem.UNREADABLE, sgf.getName() + ": " + e.getMessage());
+      return;
+    } catch (IllegalMoveException e) {
+      int number = board.getGame().getCurrMove().getMoveNum() + 1;
+      Move move = mainLineMove(game, number);
+      Problem problem = classify(replayer, move);
+      report.problem(problem, String.format("%s: move %d (%s) is illegal: %s", sgf.getName(), number,
+          name(move), problem.name().toLowerCase(Locale.ROOT).replace('_', ' ')));
+      return;
+    }
+    int moves = board.getGame().getCurrMove().getMoveNum();
+    report.games++;
+    report.moves += moves;
+    report.blackCaptures += board.getBlackHasCap();
+    report.whiteCaptures += board.getWhiteHasCap();
+    report.maxCaptures = Math.max(report.maxCaptures, board.getBlackHasCap() + board.getWhiteHasCap());
+  }
+
+  // Work out why a move could not be played on the board, which is left at
+  // the position before it.
+  private static Problem classify(Replayer replayer, Move move) {
+    Board board = replayer.board;
+    PointOfPlay point = PointOfPlay.of(move.getX(), move.getY());
+    if (move.isWhite() != board.isWhiteMove()) {
+      return Problem.OUT_OF_TURN;
+    }
+    if (!replayer.rules.isEmpty(point, board)) {
+      return Problem.OCCUPIED;
+    }
+    if (replayer.rules.isSelfCapture(point, board)) {
+      return Problem.SELF_CAPTURE;
+    }
+    return replayer.simpleKo.isKo(point, board) ? Problem.KO : Problem.SUPERKO;
+  }
+
+  private static Move mainLineMove(Game game, int number) {
+    Move move = game.movesRoot();
+    while (!(move.isMove() && move.getMoveNum() == number)) {
+      move = move.next(0);
+    }
+    return move;
+  }
+
+  private static String name(Move move) {
+    return move.isPass() ? "pass" : Character.toUpperCase(move.xEnglish()) + String.valueOf(move.yEnglish());
+  }
+
+  /**
+   * What was found in the games validated.
+   */
+  public static class Report {
+    private int files;
+    private int games;
+    private long moves;
+    private long blackCaptures;
+    private long whiteCaptures;
+    private int maxCaptures;
+    private final Map<Problem, Integer> problemCounts = new EnumMap<>(Problem.class);
+    private final List<String> problems = new ArrayList<>();
+    private long nanos;
+
+    private void problem(Problem problem, String description) {
+      problemCounts.merge(problem, 1, Integer::sum);
+      problems.add(description);
+    }
+
+    private Report merge(Report other) {
+      files += other.files;
+      games += other.games;
+      moves += other.moves;
+      blackCaptures += other.blackCaptures;
+      whiteCaptures += other.whiteCaptures;
+      maxCaptures = Math.max(maxCaptures, other.maxCaptures);
+      other.problemCounts.forEach((problem, count) -> problemCounts.merge(problem, count, Integer::sum));
+      problems.addAll(other.problems);
+      return this;
+    }
+
+    public int getFiles() {
+      return files;
+    }
+
+    /**
+     * The number of games replayed to the end.
+     */
+    public int getGames() {
+      return games;
+    }
+
+    /**
+     * The number of moves, not counting setup, in the games replayed.
+     */
+    public long getMoves() {
+      return moves;
+    }
+
+    /**
+     * The stones captured by black in the games replayed.
+     */
+    public long getBlackCaptures() {
+      return blackCaptures;
+    }
+
+    /**
+     * The stones captured by white in the games replayed.
+     */
+    public long getWhiteCaptures() {
+      return whiteCaptures;
+    }
+
+    /**
+     * The most stones captured in one game.
+     */
+    public int getMaxCaptures() {
+      return maxCaptures;
+    }
+
+    /**
+     * The number of games not replayed for a reason.
+     */
+    public int getCount(Problem problem) {
+      return problemCounts.getOrDefault(problem, 0);
+    }
+
+    /**
+     * A line for each game that couldn't be replayed, in the order of the
+     * names of their files.
+     */
+    public List<String> getProblems() {
+      return problems;
+    }
+
+    public double getSeconds() {
+      return nanos / 1e9;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder report = new StringBuilder();
+      problems.forEach(problem -> report.append(problem).append('\n'));
+      report.append(String.format("Replayed %d of %d sgf files, %d moves, in %.1f seconds (%.1f files/second)%n",
+          games, files, moves, getSeconds(), files / getSeconds()));
+      report.append(String.format("Captures: %d by black, %d by white, %.1f per game, %d at most%n",
+          blackCaptures, whiteCaptures, games == 0 ? 0.0 : (blackCaptures + whiteCaptures) / (double) games,
+          maxCaptures));
+      report.append("Not replayed:");
+      for (Problem problem : Problem.values()) {
+        report.append(' ').append(getCount(problem)).append(' ')
+            .append(problem.name().toLowerCase(Locale.ROOT).replace('_', ' '));
+        if (problem != Problem.SUPERKO) {
+          report.append(',');
+        }
+      }
+      return report.toString();
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.IllegalMoveException;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Reads directories of SGF files in parallel, replaying each game on a
+ * {@link Board} with {@link Board#replay(Game)}, and keeps count of how many
+ * were read and how fast.
+ * <p>
+ * The files are shared out over a fork join pool of the given number of
+ * threads, each of which reuses its own {@link SGFparser} and board. A file
+ * that can't be read, or whose game has an illegal move, is reported and
+ * counted and the import carries on with the next.
+ */
+public class SGFImporter {
+
+  private final int threads;
+  private Consumer<Board> gameImportedListener = board -> {
+  };
+
+  private final ThreadLocal<SGFparser> parsers = ThreadLocal.withInitial(SGFparser::new);
+  private final ThreadLocal<Board> boards = ThreadLocal.withInitial(() -> new Board(true));
+
+  private final LongAdder files = new LongAdder();
+  private final LongAdder games = new LongAdder();
+  private final LongAdder moves = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private final LongAdder unreadable = new LongAdder();
+  private final LongAdder illegal = new LongAdder();
+  private long nanos;
+
+  /**
+   * @param threads the number of files to read at once
+   */
+  public SGFImporter(int threads) {
+    this.threads = threads;
+  }
+
+  /**
+   * Be told as each game is imported, while its final position is on the
+   * board. The listener is called on the importing threads, several at once,
+   * each with its own board.
+   *
+   * @param listener called with the board after each game is replayed
+   */
+  public void setGameImportedListener(Consumer<Board> listener) {
+    gameImportedListener = listener;
+  }
+
+  /**
+   * Import every file in a directory whose name ends in <code>.sgf</code>,
+   * returning once they have all been read.
+   *
+   * @param dir the directory holding the files
+   * @return the number of files found
+   * @throws IOException          if the directory can't be listed
+   * @throws InterruptedException if interrupted while waiting for the import
+   */
+  public int importDirectory(File dir) throws IOException, InterruptedException {
+    File[] sgfs = dir.listFiles((d, name) -> name.toLowerCase(Locale.ROOT).endsWith(".sgf"));
+    if (sgfs == null) {
+      throw new IOException("Couldn't list " + dir);
+    }
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    long start = System.nanoTime();
+    try {
+      // a parallel stream started in a pool runs in that pool
+      pool.submit(() -> Arrays.stream(sgfs).parallel().forEach(this::importFile)).get();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdown();
+      nanos += System.nanoTime() - start;
+    }
+    return sgfs.length;
+  }
+
+  /**
+   * Import one file on the calling thread.
+   *
+   * @param sgf the file to import
+   * @return true if its game was read and replayed
+   */
+  public boolean importFile(File sgf) {
+    files.increment();
+    bytes.add(sgf.length());
+    Game game;
+    try (Reader in = new FileReader(sgf)) {
+      game = parsers.get().parse(in);
+    } catch (IOException e) {
+      System.out.println("Couldn't import " + sgf + ":" + e.getMessage());
+      unreadable.increment();
+      return false;
+    }
+    Board board = boards.get();
+    try {
+      board.replay(game);
+    } catch (IllegalArgumentException e) {
+      System.out.println("Couldn't import " + sgf + ":" + e.getMessage());
+      unreadable.increment();
+      return false;
+    } catch (IllegalMoveException e) {
+      System.out.println("Illegal move in " + sgf + ": " + e.getProposedMove());
+      illegal.increment();
+      return false;
+    }
+    games.increment();
+    moves.add(board.getGame().getCurrMove().getMoveNum());
+    gameImportedListener.accept(board);
+    return true;
+  }
+
+  /**
+   * The number of files read, successfully or not.
+   */
+  public long getFiles() {
+    return files.sum();
+  }
+
+  /**
+   * The number of games read and replayed.
+   */
+  public long getGames() {
+    return games.sum();
+  }
+
+  /**
+   * The number of moves, not counting setup, in the games replayed.
+   */
+  public long getMoves() {
+    return moves.sum();
+  }
+
+  public long getBytes() {
+    return bytes.sum();
+  }
+
+  /**
+   * The number of files that could not be read as a game.
+   */
+  public long getUnreadable() {
+    return unreadable.sum();
+  }
+
+  /**
+   * The number of games not replayed because of an illegal move.
+   */
+  public long getIllegal() {
+    return illegal.sum();
+  }
+
+  /**
+   * The time spent in {@link #importDirectory(File)}.
+   */
+  public double getSeconds() {
+    return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+  }
+
+  /**
+   * Summarize the imports so far, for printing.
+   */
+  public String report() {
+    double seconds = getSeconds();
+    return String.format("Imported %d of %d sgf files (%d moves, %d unreadable, %d with illegal moves) " +
+            "in %.1f seconds, %.1f files/second, %.1f MB/second", getGames(), getFiles(), getMoves(),
+        getUnreadable(), getIllegal(), seconds, getFiles() / seconds, getBytes() / seconds / (1 << 20));
+  }
+}
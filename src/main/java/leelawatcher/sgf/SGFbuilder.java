@@ -19,6 +19,16 @@ package leelawatcher.sgf;
 import leelawatcher.TsbConstants;
 import leelawatcher.goboard.Game;
 import leelawatcher.goboard.Move;
+import leelawatcher.goboard.PointOfPlay;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 
 // This class is meant to simply provide a routine for converting a game object
 // to a string that conforms to SGF FF[4]. game.java extends this class
@@ -31,62 +41,173 @@ public class SGFbuilder implements SGFproperties, TsbConstants {
   // instead of current FF[4]
 
 
+  /**
+   * Convert a tree of moves to SGF, see {@link #writeMoves(Move, Writer)}.
+   *
+   * @param aMove the root of the tree to convert
+   * @return the SGF for the moves
+   */
   public String SGFprintMoves(Move aMove) {
-    String tmp = "";
-    int numChild = aMove.numChildren();
+    StringWriter out = new StringWriter();
+    try {
+      writeMoves(aMove, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // StringWriter doesn't throw
+    }
+    return out.toString();
+  }
 
-    for (int i = 0; i < numChild; i++) {
-      if ((i == 0) && !aMove.isRoot()) {
-        tmp += ";";
-        tmp += aMove;
+  /**
+   * Write a tree of moves as SGF nodes. Each move is written as a node, and
+   * where a move has more than one child each variation is enclosed in
+   * parentheses. A root move is only written if it has no children.
+   * <p>
+   * The tree is walked with an explicit stack holding only the moves that
+   * have variations, so neither the depth of the recursion nor the memory
+   * used grows with the length of the game, and each move is written
+   * straight to <code>out</code> without building intermediate strings.
+   *
+   * @param aMove the root of the tree to write
+   * @param out   where to write the SGF
+   * @throws IOException if writing fails
+   */
+  public void writeMoves(Move aMove, Writer out) throws IOException {
+    Deque<Move> branches = new ArrayDeque<>();
+    int[] nextChild = new int[16];  // the next variation of each branch
+
+    Move current = aMove;
+    while (current != null) {
+      int numChild = current.numChildren();
+      if (numChild == 0 || !current.isRoot()) {
+        out.write(';');
+        writeMove(current, out);
+      }
+      if (numChild > 0) {
+        if (numChild > 1) {
+          if (branches.size() == nextChild.length) {
+            nextChild = Arrays.copyOf(nextChild, nextChild.length * 2);
+          }
+          nextChild[branches.size()] = 1;
+          branches.push(current);
+          out.write('(');
+        }
+        current = current.next(0);
+        continue;
       }
 
-      if (numChild > 1)
-        tmp += "(";
-
-      if (aMove.next() != aMove)               // if shouldn't be needed
-        tmp += SGFprintMoves(aMove.next(i)); // due to for loop, but...
-
-      if (numChild > 1)
-        tmp += ")";
+      // a leaf, so close variations until one with siblings left is found
+      current = null;
+      while (!branches.isEmpty()) {
+        out.write(')');
+        Move branch = branches.peek();
+        int depth = branches.size() - 1;
+        if (nextChild[depth] < branch.numChildren()) {
+          out.write('(');
+          current = branch.next(nextChild[depth]++);
+          break;
+        }
+        branches.pop();
+      }
     }
+  }
 
-    if (numChild == 0)
-      tmp += ";" + aMove;
-
-    return tmp;
+  /**
+   * Write the properties of a single move, as described for
+   * {@link Move#toString()}.
+   *
+   * @param aMove the move to write
+   * @param out   where to write the SGF
+   * @throws IOException if writing fails
+   */
+  public void writeMove(Move aMove, Writer out) throws IOException {
+    if (aMove.isMove()) {
+      out.write(aMove.getColor());
+      writePoint(aMove, aMove.getX(), aMove.getY(), out);
+    } else {
+      List<PointOfPlay>[] setup = aMove.getSetupInfo();
+      writeSetup(aMove, "AE", setup[0], out);
+      writeSetup(aMove, "AW", setup[2], out);
+      writeSetup(aMove, "AB", setup[1], out);
+    }
+    String comment = aMove.getComment();
+    if (!"".equals(comment)) {
+      out.write("C[");
+      out.write(comment);
+      out.write(']');
+    }
+  }
 
+  private void writeSetup(Move aMove, String property, List<PointOfPlay> points, Writer out)
+      throws IOException {
+    if (points.size() > 0) {
+      out.write(property);
+      for (PointOfPlay p : points) {
+        writePoint(aMove, p.getX(), p.getY(), out);
+      }
+    }
   }
 
+  private void writePoint(Move aMove, int x, int y, Writer out) throws IOException {
+    out.write('[');
+    out.write(aMove.xSGF(x));
+    out.write(aMove.ySGF(y));
+    out.write(']');
+  }
 
+  /**
+   * Convert a game to SGF, see {@link #writeSGF(Game, Writer)}.
+   *
+   * @param gm the game to convert
+   * @return the SGF for the game
+   */
   public String buildSGF(Game gm) {
+    StringWriter out = new StringWriter();
+    try {
+      writeSGF(gm, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // StringWriter doesn't throw
+    }
+    return out.toString();
+  }
 
-    String tmp = "";
-    tmp += "(;" + FILEFORMAT + "[" + FORMAT_VERSION + "]" + GAMETYPE + "[1]\n\n";
-
-    tmp += APPLICATION + "[" + PROG_NAME + " " + VERSION_STR + "]\n\n";
-
-    tmp += GAMENAME + "[" + gm.getGameName() + "]\n";
-    tmp += EVENT + "[" + gm.getGameEvent() + "]\n";
-    tmp += RESULT + "[" + gm.getGameResult() + "]\n";
-    tmp += DATE + "[" + gm.getDate() + "] ";
-    tmp += PLACE + "[" + gm.getPlace() + "]\n";
-    tmp += GAMEINFO + "[" + gm.getGameNotes() + "]\n\n";
-
-    tmp += PLAYERWHITE + "[" + gm.getWName() + "] ";
-    tmp += WHITERANK + "[" + gm.getTradWRank() + "]\n";
-    tmp += PLAYERBLACK + "[" + gm.getBName() + "] ";
-    tmp += BLACKRANK + "[" + gm.getTradBRank() + "]\n\n";
-    tmp += HANDICAP + "[" + gm.getHandi() + "] ";
-    tmp += KOMI + "[" + gm.getKomi() + "] ";
-    tmp += SIZE + "[" + gm.getBoardSize() + "]\n";
-    tmp += RULES + "[" + gm.getRuleSet() + "]\n\n";
-
-    tmp += SGFprintMoves(gm.movesRoot());
-
-    tmp += ")\n";
-    return tmp;
+  /**
+   * Write a game in SGF FF[4]: the game information followed by the
+   * tree of moves.
+   *
+   * @param gm  the game to write
+   * @param out where to write the SGF, it is not flushed or closed
+   * @throws IOException if writing fails
+   */
+  public void writeSGF(Game gm, Writer out) throws IOException {
+    out.append("(;").append(FILEFORMAT).append('[').append(FORMAT_VERSION).append(']')
+        .append(GAMETYPE).append("[1]\n\n");
+
+    out.append(APPLICATION).append('[').append(PROG_NAME).append(' ').append(VERSION_STR).append("]\n\n");
+
+    property(out, GAMENAME, gm.getGameName()).append('\n');
+    property(out, EVENT, gm.getGameEvent()).append('\n');
+    property(out, RESULT, gm.getGameResult()).append('\n');
+    property(out, DATE, gm.getDate()).append(' ');
+    property(out, PLACE, gm.getPlace()).append('\n');
+    property(out, GAMEINFO, gm.getGameNotes()).append("\n\n");
+
+    property(out, PLAYERWHITE, gm.getWName()).append(' ');
+    property(out, WHITERANK, gm.getTradWRank()).append('\n');
+    property(out, PLAYERBLACK, gm.getBName()).append(' ');
+    property(out, BLACKRANK, gm.getTradBRank()).append("\n\n");
+    property(out, HANDICAP, String.valueOf(gm.getHandi())).append(' ');
+    property(out, KOMI, String.valueOf(gm.getKomi())).append(' ');
+    property(out, SIZE, gm.getBoardSize()).append('\n');
+    property(out, RULES, gm.getRuleSet()).append("\n\n");
+
+    writeMoves(gm.movesRoot(), out);
+
+    out.append(")\n");
+  }
 
+  private static Writer property(Writer out, String name, String value) throws IOException {
+    out.append(name).append('[').append(value).append(']');
+    return out;
   }
 
 }
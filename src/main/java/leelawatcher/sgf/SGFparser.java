@@ -0,0 +1,501 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.Move;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Reads a game from SGF FF[4], the reverse of {@link SGFbuilder}.
+ * <p>
+ * The text is read through a small buffer as it arrives, and the tree of
+ * moves is built a node at a time using an explicit stack for the
+ * variations, so neither the length of a game nor the depth of its
+ * variations is limited by the thread's stack. The first node becomes the
+ * root of the game's tree and supplies the information about the game.
+ * Every later node becomes a move if it has a <code>B</code> or
+ * <code>W</code> property, and otherwise a setup node holding its
+ * <code>AB</code>, <code>AW</code> and <code>AE</code> points; a node with
+ * both becomes a setup node followed by the move. Comments are kept, other
+ * properties are skipped. Only the first game of a collection is read.
+ * <p>
+ * Instances are not thread safe, use one per thread.
+ */
+public class SGFparser implements SGFproperties {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  // a point as read, before the board size is known
+  private static final int PASS_POINT = -1;
+
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private final StringBuilder ident = new StringBuilder(4);
+  private final StringBuilder value = new StringBuilder(64);
+
+  // the properties of the node being read, see Points for the points
+  private char color;
+  private int move;
+  private final Points black = new Points();
+  private final Points white = new Points();
+  private final Points empty = new Points();
+  private char toPlay;
+  private String comment;
+
+  private Reader in;
+  private int pos;
+  private int end;
+  private int line;
+  private int size;
+
+  // Pairs of opposite corners of the rectangles of points in a setup
+  // property, as read. A single point is a rectangle with both corners the
+  // same.
+  private static class Points {
+    private int[] corners = new int[16];
+    private int length;
+
+    private void add(int from, int to) {
+      if (length == corners.length) {
+        corners = Arrays.copyOf(corners, length * 2);
+      }
+      corners[length++] = from;
+      corners[length++] = to;
+    }
+  }
+
+  /**
+   * Read a game.
+   *
+   * @param reader the SGF, which is not closed
+   * @return the game, with its moves attached to the root of its move tree
+   * @throws IOException if the SGF can't be read or does not hold a game
+   */
+  public Game parse(Reader reader) throws IOException {
+    in = reader;
+    pos = 0;
+    end = 0;
+    line = 1;
+    size = Move.MAX_SIZE;
+
+    if (skipSpace() != '(') {
+      throw error("expected '('");
+    }
+    if (skipSpace() != ';') {
+      throw error("expected ';'");
+    }
+    Game game = new Game("White", "Black", 0, 0);
+    readNode(game);
+    Move root = game.movesRoot();
+    setup(root);
+    Move current = root;
+    if (color != 0) {
+      // a move in the root node, which is legal if unusual
+      current = addNode(root);
+    } else if (comment != null) {
+      root.setComment(comment);
+    }
+
+    Deque<Move> variations = new ArrayDeque<>();
+    variations.push(root);
+    while (true) {
+      int c = skipSpace();
+      switch (c) {
+        case ';':
+          readNode(null);
+          current = addNode(current);
+          break;
+        case '(':
+          variations.push(current);
+          break;
+        case ')':
+          current = variations.pop();
+          if (variations.isEmpty()) {
+            return game;
+          }
+          break;
+        case -1:
+          throw error("unexpected end of file");
+        default:
+          throw error("unexpected '" + (char) c + "'");
+      }
+    }
+  }
+
+  // Read the properties of a node, and those about the game if it is the
+  // root.
+  private void readNode(Game root) throws IOException {
+    color = 0;
+    black.length = 0;
+    white.length = 0;
+    empty.length = 0;
+    toPlay = 0;
+    comment = null;
+    while (true) {
+      int c = skipSpace();
+      if (c < 'A' || c > 'Z') {
+        unread(c);
+        return;
+      }
+      ident.setLength(0);
+      // older formats allow lower case letters in identifiers, e.g. AddBlack
+      while ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+        if (c <= 'Z') {
+          ident.append((char) c);
+        }
+        c = read();
+      }
+      String id = ident.toString();
+      if (isSpace(c)) {
+        c = skipSpace();
+      }
+      if (c != '[') {
+        throw error("no value for " + id);
+      }
+      while (c == '[') {
+        readValue();
+        property(id, root);
+        c = skipSpace();
+      }
+      unread(c);
+    }
+  }
+
+  private void property(String id, Game root) throws IOException {
+    switch (id) {
+      case BLACKMOVE:
+      case WHITEMOVE:
+        if (color != 0) {
+          throw error("more than one move in a node");
+        }
+        color = id.charAt(0);
+        move = point(0, value.length());
+        return;
+      case ADDBLACK:
+        points(black);
+        return;
+      case ADDWHITE:
+        points(white);
+        return;
+      case ADDEMPTY:
+        points(empty);
+        return;
+      case PLAYERTURN:
+        toPlay = value.length() == 0 ? 0 : value.charAt(0);
+        return;
+      case COMMENT:
+        comment = value.toString();
+        return;
+      default:
+    }
+    if (root == null) {
+      return;
+    }
+    String text = value.toString().trim();
+    try {
+      switch (id) {
+        case SIZE:
+          if (text.indexOf(':') >= 0) {
+            throw error("rectangular boards are not supported: " + text);
+          }
+          size = Integer.parseInt(text);
+          if (size < 1 || size > Move.MAX_SIZE) {
+            throw error("unsupported board size " + size);
+          }
+          root.setBoardSize(size);
+          break;
+        case PLAYERWHITE:
+          root.setWName(text);
+          break;
+        case PLAYERBLACK:
+          root.setBName(text);
+          break;
+        case WHITERANK:
+          if (isRank(text)) {
+            root.setWRank(rank(text));
+          }
+          break;
+        case BLACKRANK:
+          if (isRank(text)) {
+            root.setBRank(rank(text));
+          }
+          break;
+        case HANDICAP:
+          root.setHandi(Integer.parseInt(text));
+          break;
+        case KOMI:
+          root.setKomi(Float.parseFloat(text));
+          break;
+        case GAMENAME:
+          root.setGameName(text);
+          break;
+        case EVENT:
+          root.setGameEvent(text);
+          break;
+        case RESULT:
+          root.setGameResult(text);
+          break;
+        case DATE:
+          root.setDate(text);
+          break;
+        case PLACE:
+          root.setPlace(text);
+          break;
+        case GAMEINFO:
+          root.setGameNotes(text);
+          break;
+        case RULES:
+          root.setRuleSet(text);
+          break;
+        default:
+      }
+    } catch (NumberFormatException e) {
+      throw error("bad value for " + id + ": " + text);
+    }
+  }
+
+  // Attach the node just read to its parent, returning the last move
+  // created for it.
+  private Move addNode(Move parent) throws IOException {
+    Move node = parent;
+    if (empty.length + black.length + white.length > 0 || toPlay != 0 || color == 0) {
+      node = new Move(parent);
+      setup(node);
+      if (comment != null && color == 0) {
+        node.setComment(comment);
+      }
+    }
+    if (color != 0) {
+      int x = Move.PASS;
+      int y = Move.PASS;
+      if (move != PASS_POINT) {
+        x = x(move);
+        y = y(move);
+        checkOnBoard(x, y);
+      }
+      if (node.isMove() && node.getColor() == color) {
+        throw error("two " + (color == Move.MOVE_BLACK ? "black" : "white") + " moves in a row");
+      }
+      node = new Move(x, y, color, node);
+      if (comment != null) {
+        node.setComment(comment);
+      }
+    }
+    return node;
+  }
+
+  private void setup(Move node) throws IOException {
+    for (int i = 0; i < empty.length; i += 2) {
+      forEachPoint(empty.corners[i], empty.corners[i + 1], node, Move.EMPTY);
+    }
+    for (int i = 0; i < black.length; i += 2) {
+      forEachPoint(black.corners[i], black.corners[i + 1], node, Move.MOVE_BLACK);
+    }
+    for (int i = 0; i < white.length; i += 2) {
+      forEachPoint(white.corners[i], white.corners[i + 1], node, Move.MOVE_WHITE);
+    }
+    if (toPlay == Move.MOVE_BLACK || toPlay == Move.MOVE_WHITE) {
+      node.setColorMoveNext(toPlay);
+    }
+  }
+
+  private void forEachPoint(int from, int to, Move node, char type) throws IOException {
+    if (from == PASS_POINT || to == PASS_POINT) {
+      throw error("can't set up a pass");
+    }
+    int x1 = Math.min(x(from), x(to));
+    int x2 = Math.max(x(from), x(to));
+    int y1 = Math.min(y(from), y(to));
+    int y2 = Math.max(y(from), y(to));
+    checkOnBoard(x1, y1);
+    checkOnBoard(x2, y2);
+    for (int y = y1; y <= y2; y++) {
+      for (int x = x1; x <= x2; x++) {
+        switch (type) {
+          case Move.MOVE_BLACK:
+            node.setupBlack(x, y);
+            break;
+          case Move.MOVE_WHITE:
+            node.setupWhite(x, y);
+            break;
+          default:
+            node.setupEmpty(x, y);
+        }
+      }
+    }
+  }
+
+  private void points(Points list) throws IOException {
+    int colon = value.indexOf(":");
+    if (colon < 0) {
+      int p = point(0, value.length());
+      list.add(p, p);
+    } else {
+      list.add(point(0, colon), point(colon + 1, value.length()));
+    }
+  }
+
+  // Read a point from part of the value. The board size may not be known
+  // yet, so the letters are kept and turned into coordinates later.
+  private int point(int from, int to) throws IOException {
+    if (isBlank(from, to)) {
+      // SGFbuilder writes a pass as two spaces
+      return PASS_POINT;
+    }
+    if (to - from != 2) {
+      throw error("bad point [" + value + "]");
+    }
+    char c0 = value.charAt(from);
+    char c1 = value.charAt(from + 1);
+    if (c0 < 'a' || c0 > 'z' || c1 < 'a' || c1 > 'z') {
+      throw error("bad point [" + value + "]");
+    }
+    if (c0 == 't' && c1 == 't') {
+      // a pass in FF[3], and still on boards of up to 19 lines
+      return PASS_POINT;
+    }
+    return c0 << 8 | c1;
+  }
+
+  private boolean isBlank(int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (!isSpace(value.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int x(int point) {
+    return (point >> 8) - 'a';
+  }
+
+  // SGF counts lines down from the top, moves count up from the bottom
+  private int y(int point) {
+    return size - 1 - ((point & 0xFF) - 'a');
+  }
+
+  private void checkOnBoard(int x, int y) throws IOException {
+    if (x < 0 || x >= size || y < 0 || y >= size) {
+      throw error("point " + x + "," + y + " is off the board");
+    }
+  }
+
+  private static boolean isRank(String rank) {
+    return rank.matches("\\d+[kdp].*");
+  }
+
+  // The inverse of Game.getTradWRank(): kyu ranks are negative, and
+  // professional ranks follow the 7 amateur dan ranks.
+  private static float rank(String rank) {
+    int i = 0;
+    while (Character.isDigit(rank.charAt(i))) {
+      i++;
+    }
+    int n = Integer.parseInt(rank.substring(0, i));
+    switch (rank.charAt(i)) {
+      case 'k':
+        return -n;
+      case 'p':
+        return n + 7;
+      default:
+        return n;
+    }
+  }
+
+  // Read a property value, after its opening bracket, into value.
+  private void readValue() throws IOException {
+    value.setLength(0);
+    while (true) {
+      int c = read();
+      switch (c) {
+        case ']':
+          return;
+        case '\\':
+          c = read();
+          if (c == '\r' || c == '\n') {
+            // a soft line break, which is removed along with its newline
+            int next = read();
+            if (next != (c == '\r' ? '\n' : '\r')) {
+              unread(next);
+            }
+            continue;
+          }
+          break;
+        case -1:
+          throw error("unexpected end of file in a value");
+        default:
+      }
+      if (c < 0) {
+        throw error("unexpected end of file in a value");
+      }
+      value.append((char) c);
+    }
+  }
+
+  private int skipSpace() throws IOException {
+    int c = read();
+    while (isSpace(c)) {
+      c = read();
+    }
+    return c;
+  }
+
+  private static boolean isSpace(int c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+  }
+
+  // The next character, or -1 at the end. One character can be pushed back
+  // with unread().
+  private int read() throws IOException {
+    if (pos == end) {
+      if (end > 0) {
+        // keep the last character so it can still be pushed back
+        buffer[0] = buffer[end - 1];
+        pos = 1;
+        end = 1;
+      }
+      int n = in.read(buffer, end, buffer.length - end);
+      if (n < 0) {
+        return -1;
+      }
+      end += n;
+    }
+    char c = buffer[pos++];
+    if (c == '\n') {
+      line++;
+    }
+    return c;
+  }
+
+  private void unread(int c) {
+    if (c >= 0) {
+      pos--;
+      if (c == '\n') {
+        line--;
+      }
+    }
+  }
+
+  private IOException error(String problem) {
+    return new IOException("SGF line " + line + ": " + problem);
+  }
+}
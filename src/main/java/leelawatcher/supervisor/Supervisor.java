@@ -0,0 +1,245 @@
+/*
+    Copyright 2017 Patrick G. Heck
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+ */
+package leelawatcher.supervisor;
+
+import leelawatcher.metrics.Histogram;
+import leelawatcher.metrics.Metrics;
+import leelawatcher.parser.AutoGtpOutputParser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches several instances of autogtp from one JVM.
+ * <p>
+ * Each instance is either launched by the supervisor or attached to by
+ * following the log file its output is being written to, and has its own
+ * {@link AutoGtpOutputParser}. Rather than dedicating a thread to blocking
+ * reads for each instance, all of the instances share a fixed number of
+ * threads: an instance's output is read whenever some is available and
+ * handed to its parser, and an instance with nothing to read is polled again
+ * shortly. The parser of each instance is only ever run by one thread at a
+ * time, so its listeners see events in order, but not always on the same
+ * thread.
+ * <p>
+ * Add the instances, subscribe to their parsers, then {@link #start()}.
+ */
+public class Supervisor {
+
+  // bytes read from an instance per turn on a thread
+  private static final int CHUNK_SIZE = 8192;
+
+  // how long to wait before looking again at an instance with no output
+  private static final long POLL_MILLIS = 20;
+
+  // output still waiting once a block is read, as kept by the parser itself
+  private static final Histogram BACKLOG = Metrics.histogram("parser.backlog.bytes");
+
+  private final ScheduledExecutorService pool;
+  private final List<Instance> instances = new ArrayList<>();
+  private CountDownLatch running;
+
+  /**
+   * @param threads the number of threads to share between the instances
+   */
+  public Supervisor(int threads) {
+    pool = Executors.newScheduledThreadPool(threads, r -> {
+      Thread t = new Thread(r, "supervisor");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * A watched instance of autogtp.
+   */
+  public final class Instance {
+    private final String name;
+    private final Process process;  // null when following a log file
+    private final InputStream output;
+    private final AutoGtpOutputParser parser = new AutoGtpOutputParser();
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private Instance(String name, Process process, InputStream output) {
+      this.name = name;
+      this.process = process;
+      this.output = output;
+      // several instances would interleave their output on standard out
+      parser.setEcho(false);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * The parser for this instance's output, to which listeners should be
+     * added before the supervisor is started.
+     */
+    public AutoGtpOutputParser getParser() {
+      return parser;
+    }
+
+    // Parse whatever output is available and arrange to be called again.
+    private void pump() {
+      int read;
+      try {
+        read = readAvailable();
+      } catch (IOException e) {
+        System.out.println(name + ": " + e);
+        read = -1;
+      }
+      if (read > 0) {
+        try {
+          parser.parse(chunk, 0, read);
+        } catch (RuntimeException e) {
+          System.out.println(name + ": Couldn't parse output, stopping:" + e);
+          e.printStackTrace();
+          // nothing will drain its output any more, so it would block
+          if (process != null) {
+            process.destroyForcibly();
+          }
+          finished();
+          return;
+        }
+        // go to the back of the queue so that busy instances take turns
+        pool.execute(this::pump);
+      } else if (read == 0) {
+        pool.schedule(this::pump, POLL_MILLIS, TimeUnit.MILLISECONDS);
+      } else {
+        finished();
+      }
+    }
+
+    /**
+     * Read without blocking.
+     *
+     * @return the number of bytes read into the chunk, 0 if there was
+     * nothing to read, or -1 if the instance has exited and all of its output
+     * has been read.
+     */
+    private int readAvailable() throws IOException {
+      if (process == null) {
+        // a log file that autogtp is appending to never ends
+        return Math.max(0, output.read(chunk));
+      }
+      int available = output.available();
+      BACKLOG.record(Math.max(0, available - chunk.length));
+      if (available > 0) {
+        return output.read(chunk, 0, Math.min(available, chunk.length));
+      }
+      // once the process is gone the pipe will not block
+      return process.isAlive() ? 0 : output.read(chunk);
+    }
+
+    private void finished() {
+      try {
+        output.close();
+      } catch (IOException e) {
+        // nothing more to read either way
+      }
+      running.countDown();
+    }
+  }
+
+  /**
+   * Launch an instance of autogtp. The process is started straight away,
+   * but its output is not read until the supervisor is started.
+   *
+   * @param name    the name to report the instance by
+   * @param command the builder for the process, which should merge its error
+   *                output into its standard output
+   * @return the new instance
+   */
+  public Instance launch(String name, ProcessBuilder command) throws IOException {
+    Process process = command.start();
+    return add(new Instance(name, process, process.getInputStream()));
+  }
+
+  /**
+   * Follow the log file that an instance of autogtp, started elsewhere, is
+   * writing its standard output to. The log is read from the beginning.
+   *
+   * @param name the name to report the instance by
+   * @param log  the file being written to
+   * @return the new instance
+   */
+  public Instance attach(String name, File log) throws IOException {
+    return add(new Instance(name, null, new FileInputStream(log)));
+  }
+
+  private synchronized Instance add(Instance instance) {
+    if (running != null) {
+      throw new IllegalStateException("Instances must be added before the supervisor is started");
+    }
+    instances.add(instance);
+    return instance;
+  }
+
+  public synchronized List<Instance> getInstances() {
+    return Collections.unmodifiableList(new ArrayList<>(instances));
+  }
+
+  /**
+   * Start reading the output of every instance.
+   */
+  public synchronized void start() {
+    running = new CountDownLatch(instances.size());
+    for (Instance instance : instances) {
+      pool.execute(instance::pump);
+    }
+  }
+
+  /**
+   * Wait until every launched instance has exited and its output has been
+   * parsed. Instances that are attached to log files never finish, so this
+   * only returns if they are all launched, or the supervisor is stopped.
+   */
+  public void awaitTermination() throws InterruptedException {
+    running.await();
+  }
+
+  /**
+   * Stop reading output and kill any instances that were launched.
+   */
+  public synchronized void stop() {
+    pool.shutdownNow();
+    for (Instance instance : instances) {
+      if (instance.process != null) {
+        instance.process.destroyForcibly();
+      }
+      try {
+        instance.output.close();
+      } catch (IOException e) {
+        // shutting down anyway
+      }
+    }
+    if (running != null) {
+      while (running.getCount() > 0) {
+        running.countDown();
+      }
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package leelawatcher.archive;
+
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.Move;
+import leelawatcher.sgf.SGFbuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GameArchiveTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final SGFbuilder builder = new SGFbuilder();
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    File file = folder.newFile("games.lwa");
+    file.delete();
+    Game[] games = {randomGame(1, 300), randomGame(2, 0), setUpGame()};
+    try (GameArchive archive = new GameArchive(file)) {
+      for (int i = 0; i < games.length; i++) {
+        assertEquals(i, archive.append(games[i]));
+      }
+    }
+    try (ArchiveReader reader = new ArchiveReader(file)) {
+      assertEquals(games.length, reader.size());
+      for (int i = 0; i < games.length; i++) {
+        assertEquals(builder.buildSGF(games[i]), builder.buildSGF(reader.read(i)));
+      }
+    }
+  }
+
+  @Test
+  public void testTwoBytesPerMove() throws Exception {
+    File file = new File(folder.getRoot(), "games.lwa");
+    Game game = randomGame(3, 100);
+    long empty;
+    try (GameArchive archive = new GameArchive(file)) {
+      archive.append(randomGame(3, 0));
+      empty = file.length();
+      archive.append(game);
+    }
+    assertEquals(2 * 100, file.length() - 2 * empty + GameArchive.HEADER_SIZE);
+  }
+
+  @Test
+  public void testAppendsAndRecovers() throws Exception {
+    File file = new File(folder.getRoot(), "games.lwa");
+    try (GameArchive archive = new GameArchive(file)) {
+      archive.append(randomGame(4, 50));
+    }
+    long whole;
+    try (GameArchive archive = new GameArchive(file)) {
+      assertEquals(1, archive.size());
+      archive.append(randomGame(5, 50));
+      whole = file.length();
+      archive.append(randomGame(6, 50));
+    }
+
+    // as if the JVM died while writing the third game, after the second
+    // game was written but before it was indexed
+    try (RandomAccessFile archive = new RandomAccessFile(file, "rw");
+         RandomAccessFile index = new RandomAccessFile(GameArchive.indexFile(file), "rw")) {
+      archive.setLength(file.length() - 10);
+      index.setLength(index.length() - 12);
+    }
+    try (GameArchive archive = new GameArchive(file)) {
+      assertEquals(2, archive.size());
+      assertEquals(whole, file.length());
+      archive.append(randomGame(7, 50));
+    }
+    try (ArchiveReader reader = new ArchiveReader(file)) {
+      assertEquals(3, reader.size());
+      assertEquals(builder.buildSGF(randomGame(5, 50)), builder.buildSGF(reader.read(1)));
+      assertEquals(builder.buildSGF(randomGame(7, 50)), builder.buildSGF(reader.read(2)));
+    }
+  }
+
+  @Test
+  public void testExportSGF() throws Exception {
+    File file = new File(folder.getRoot(), "games.lwa");
+    try (GameArchive archive = new GameArchive(file)) {
+      archive.append(randomGame(8, 20));
+      archive.append(randomGame(9, 20));
+    }
+    File dir = folder.newFolder("sgf");
+    try (ArchiveReader reader = new ArchiveReader(file)) {
+      assertEquals(2, reader.exportSGF(dir));
+    }
+    String exported = new String(Files.readAllBytes(new File(dir, "00000001.sgf").toPath()), Charset.defaultCharset());
+    assertEquals(builder.buildSGF(randomGame(9, 20)), exported);
+  }
+
+  @Test(expected = java.io.IOException.class)
+  public void testNotAnArchive() throws Exception {
+    File file = folder.newFile("games.sgf");
+    Files.write(file.toPath(), "(;FF[4]GM[1])".getBytes(Charset.defaultCharset()));
+    new GameArchive(file).close();
+  }
+
+  // Always the same game for the same seed, including its date.
+  private static Game randomGame(long seed, int moves) {
+    Random random = new Random(seed);
+    Game game = new Game("Leela", "Leela", 0, 7.5f);
+    game.setDate("2017-11-" + seed);
+    game.setGameResult(random.nextBoolean() ? "B+Resign" : "W+3.5");
+    for (int i = 0; i < moves; i++) {
+      if (random.nextInt(50) == 0) {
+        game.doMove(Move.PASS, Move.PASS);
+      } else {
+        game.doMove(random.nextInt(19), random.nextInt(19));
+      }
+    }
+    return game;
+  }
+
+  private static Game setUpGame() {
+    Game game = new Game("White", "Black", 2, 0.5f);
+    game.setWRank(5);
+    game.setBRank(-3);
+    game.setGameNotes("setup");
+    Move root = game.movesRoot();
+    root.setupBlack(3, 3);
+    root.setupBlack(15, 15);
+    Move white = new Move(3, 15, Move.MOVE_WHITE, root);
+    Move setup = new Move(white);
+    setup.setupEmpty(3, 15);
+    setup.setupWhite(9, 9);
+    new Move(10, 10, Move.MOVE_BLACK, setup);
+    assertTrue(game.toString().contains("AE[dd]AW[jj]"));
+    return game;
+  }
+}
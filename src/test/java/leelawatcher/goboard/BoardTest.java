@@ -0,0 +1,73 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BoardTest {
+
+  // black captures a white stone on both edges by playing either side of it
+  private static void captureOnEdges(Board board) throws IllegalMoveException {
+    for (int c = 0; c <= 12; c += 4) {
+      for (int edge : new int[]{0, 18}) {
+        int inside = edge == 0 ? 1 : 17;
+        board.doMove(c, edge);
+        board.doMove(c + 1, edge);
+        board.doMove(c + 1, inside);
+        board.doMove(c + 3, edge == 0 ? 8 : 10);
+        board.doMove(c + 2, edge);
+        board.doMove(c + 3, edge == 0 ? 7 : 11);
+      }
+    }
+  }
+
+  @Test
+  public void testCurrPosReadWhileMovesArePlayed() throws Exception {
+    for (boolean trackGroups : new boolean[]{false, true}) {
+      Board board = new Board(trackGroups);
+      Set<Position> played = Collections.newSetFromMap(new IdentityHashMap<>());
+      played.add(board.getCurrPos());
+      List<Position> seen = new ArrayList<>();
+      AtomicBoolean done = new AtomicBoolean();
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      Thread reader = new Thread(() -> {
+        try {
+          while (!done.get()) {
+            seen.add(board.getCurrPos());
+          }
+        } catch (Throwable t) {
+          failure.set(t);
+        }
+      });
+      reader.start();
+      for (int game = 0; game < 200; game++) {
+        board.newGame("White", "Black", 0, 7.5f);
+        played.add(board.getCurrPos());
+        captureOnEdges(board);
+        for (int i = 0; i < board.getNumPositions(); i++) {
+          played.add(board.getPosition(i));
+        }
+        assertEquals(8, board.getBlackHasCap());
+      }
+      done.set(true);
+      reader.join();
+
+      assertNull(failure.get());
+      assertTrue(seen.size() > 0);
+      for (Position position : seen) {
+        // only positions that were on the board once their move was complete
+        assertTrue(played.contains(position));
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GroupTrackerTest {
+
+  @Test
+  public void testCaptureInCorner() throws IllegalMoveException {
+    Board board = new Board(true);
+    board.doMove(0, 0);  // B
+    board.doMove(1, 0);  // W
+    board.doMove(5, 5);  // B
+    assertEquals(1, board.countLiberties(PointOfPlay.of(0, 0)));
+    board.doMove(0, 1);  // W captures
+    assertEquals(1, board.getWhiteHasCap());
+    assertEquals(0, board.countGroup(PointOfPlay.of(0, 0)));
+    assertEquals(4, board.countLiberties(PointOfPlay.of(5, 5)));
+    assertEquals(3, board.countLiberties(PointOfPlay.of(1, 0)));
+  }
+
+  @Test
+  public void testMergeAndUndo() throws IllegalMoveException {
+    Board board = new Board(true);
+    board.doMove(3, 3);  // B
+    board.doMove(10, 10);  // W
+    board.doMove(3, 4);  // B
+    assertEquals(2, board.countGroup(PointOfPlay.of(3, 3)));
+    assertEquals(6, board.countLiberties(PointOfPlay.of(3, 3)));
+    board.undoMove();
+    assertEquals(1, board.countGroup(PointOfPlay.of(3, 3)));
+    assertEquals(4, board.countLiberties(PointOfPlay.of(3, 3)));
+  }
+
+  @Test
+  public void testSetUp() throws IllegalMoveException {
+    Board board = new Board(true);
+    List<PointOfPlay> white = new ArrayList<>();
+    List<PointOfPlay> black = new ArrayList<>();
+    white.add(PointOfPlay.of(0, 1));
+    white.add(PointOfPlay.of(1, 1));
+    black.add(PointOfPlay.of(0, 0));
+    black.add(PointOfPlay.of(1, 0));
+    board.setUp(white, black, Collections.emptyList(), false);
+    assertEquals(2, board.countGroup(PointOfPlay.of(0, 1)));
+    assertEquals(1, board.countLiberties(PointOfPlay.of(0, 0)));
+    board.doMove(2, 0);  // W captures two
+    assertEquals(2, board.getWhiteHasCap());
+    assertEquals(5, board.countLiberties(PointOfPlay.of(1, 1)));
+  }
+
+  /**
+   * Play the same random game with and without group tracking, and check
+   * the boards never differ.
+   */
+  @Test
+  public void testMatchesFloodFill() throws IllegalMoveException {
+    Random random = new Random(42);
+    int captures = 0;
+    for (int game = 0; game < 5; game++) {
+      Board tracked = new Board(true);
+      Board flooded = new Board(false);
+      for (int move = 0; move < 400; move++) {
+        int x = random.nextInt(19);
+        int y = random.nextInt(19);
+        PointOfPlay p = PointOfPlay.of(x, y);
+        if (!flooded.getCurrPos().stoneAt(p) && !isOwnEye(flooded, x, y)) {
+          try {
+            flooded.doMove(x, y);
+          } catch (IllegalMoveException e) {
+            continue;
+          }
+          tracked.doMove(x, y);
+        }
+        assertEquals(flooded.getCurrPos(), tracked.getCurrPos());
+        assertEquals(flooded.getWhiteHasCap(), tracked.getWhiteHasCap());
+        assertEquals(flooded.getBlackHasCap(), tracked.getBlackHasCap());
+        if (flooded.getCurrPos().stoneAt(p)) {
+          assertEquals(flooded.countLiberties(p), tracked.countLiberties(p));
+          assertEquals(flooded.countGroup(p), tracked.countGroup(p));
+        }
+      }
+      captures += tracked.getWhiteHasCap() + tracked.getBlackHasCap();
+    }
+    assertTrue("games should include captures", captures > 0);
+  }
+
+  // random play never ends without this
+  private static boolean isOwnEye(Board board, int x, int y) {
+    char own = board.isWhiteMove() ? Move.MOVE_WHITE : Move.MOVE_BLACK;
+    Position pos = board.getCurrPos();
+    return (y == 18 || pos.colorAt(x, y + 1) == own)
+        && (x == 18 || pos.colorAt(x + 1, y) == own)
+        && (y == 0 || pos.colorAt(x, y - 1) == own)
+        && (x == 0 || pos.colorAt(x - 1, y) == own);
+  }
+}
@@ -19,28 +19,28 @@ public class MarkablePositionTest {
     @Test
     public void testConstructionWithEmptyPosition() {
         MarkablePosition pos = new MarkablePosition(new Position());
-        assertFalse(pos.isMarked(new PointOfPlay(2, 2)));
+        assertFalse(pos.isMarked(PointOfPlay.of(2, 2)));
     }
 
     @Test
     public void testSetMark() {
         MarkablePosition pos = new MarkablePosition(new Position());
-        pos.setMark(new PointOfPlay(2, 2));
-        assertTrue(pos.isMarked(new PointOfPlay(2, 2)));
+        pos.setMark(PointOfPlay.of(2, 2));
+        assertTrue(pos.isMarked(PointOfPlay.of(2, 2)));
     }
 
     @Test
     public void testSetMarkTwice() {
         MarkablePosition pos = new MarkablePosition(new Position());
-        pos.setMark(new PointOfPlay(2, 2));
-        pos.setMark(new PointOfPlay(2, 2));
-        assertTrue(pos.isMarked(new PointOfPlay(2, 2)));
+        pos.setMark(PointOfPlay.of(2, 2));
+        pos.setMark(PointOfPlay.of(2, 2));
+        assertTrue(pos.isMarked(PointOfPlay.of(2, 2)));
     }
 
     @Test
     public void testClearMark() {
         MarkablePosition pos = new MarkablePosition(new Position());
-        PointOfPlay p1 = new PointOfPlay(2, 3);
+        PointOfPlay p1 = PointOfPlay.of(2, 3);
         pos.setMark(p1);
         assertTrue(pos.isMarked(p1));
         pos.clearMark(p1);
@@ -50,8 +50,8 @@ public class MarkablePositionTest {
     @Test
     public void testClearMarks() {
         MarkablePosition pos = new MarkablePosition(new Position());
-        PointOfPlay p1 = new PointOfPlay(2, 2);
-        PointOfPlay p2 = new PointOfPlay(2, 3);
+        PointOfPlay p1 = PointOfPlay.of(2, 2);
+        PointOfPlay p2 = PointOfPlay.of(2, 3);
         pos.setMark(p1);
         pos.setMark(p2);
         assertTrue(pos.isMarked(p1));
@@ -69,7 +69,7 @@ public class MarkablePositionTest {
         pos = new Position(pos, new Move(2, 2, MOVE_BLACK, root));
         MarkablePosition mp = new MarkablePosition(pos);
 
-        Set members = mp.getGroupSet(new PointOfPlay(2, 2), null, 9);
+        Set members = mp.getGroupSet(PointOfPlay.of(2, 2), null, 9);
         assertEquals("Unexpected number of members",1, members.size());
     }
 
@@ -84,7 +84,7 @@ public class MarkablePositionTest {
         pos = new Position(pos, new Move(3, 3, MOVE_BLACK, root));
         MarkablePosition mp = new MarkablePosition(pos);
 
-        Set members = mp.getGroupSet(new PointOfPlay(2, 2), null, 9);
+        Set members = mp.getGroupSet(PointOfPlay.of(2, 2), null, 9);
         assertEquals("Unexpected number of members",3, members.size());
     }
 
@@ -0,0 +1,137 @@
+package leelawatcher.goboard;
+
+import leelawatcher.sgf.SGFbuilder;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MoveTreeTest {
+
+  private final SGFbuilder builder = new SGFbuilder();
+
+  @Test
+  public void testNavigation() {
+    MoveTree tree = new MoveTree(2);
+    int root = MoveTree.ROOT;
+    int first = tree.addMove(root, 3, 3, Move.MOVE_BLACK);
+    int reply = tree.addMove(first, 15, 15, Move.MOVE_WHITE);
+    int alternative = tree.addMove(first, Move.PASS, Move.PASS, Move.MOVE_WHITE);
+    tree.setComment(alternative, "pass");
+
+    assertEquals(4, tree.size());
+    assertTrue(tree.isRoot(root));
+    assertEquals(root, tree.getParent(root));
+    assertEquals(first, tree.next(root));
+    assertEquals(2, tree.numChildren(first));
+    assertEquals(reply, tree.next(first, 0));
+    assertEquals(alternative, tree.next(first, 1));
+    assertEquals(reply, tree.next(first, 5));
+    assertEquals(reply, tree.next(reply));
+    assertEquals(alternative, tree.nextSibling(reply));
+    assertEquals(MoveTree.NONE, tree.nextSibling(alternative));
+    assertEquals(first, tree.getParent(alternative));
+    assertTrue(tree.isBlack(first));
+    assertTrue(tree.isWhite(reply));
+    assertTrue(tree.isPass(alternative));
+    assertFalse(tree.isPass(reply));
+    assertEquals(15, tree.getX(reply));
+    assertEquals(2, tree.getMoveNum(alternative));
+    assertEquals("pass", tree.getComment(alternative));
+    assertEquals("", tree.getComment(reply));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSameColorTwice() {
+    MoveTree tree = new MoveTree();
+    tree.addMove(tree.addMove(MoveTree.ROOT, 3, 3, Move.MOVE_BLACK), 4, 4, Move.MOVE_BLACK);
+  }
+
+  @Test
+  public void testSetup() {
+    MoveTree tree = new MoveTree();
+    int setup = tree.addSetup(MoveTree.ROOT);
+    tree.setupBlack(setup, 3, 3);
+    tree.setupWhite(setup, 15, 15);
+    tree.setupBlack(setup, 15, 15);
+    tree.setupEmpty(setup, 9, 9);
+    tree.setColorMoveNext(setup, Move.MOVE_WHITE);
+    int move = tree.addMove(setup, 16, 3, Move.MOVE_WHITE);
+    tree.setupBlack(move, 0, 0);
+
+    assertTrue(tree.isSetup(setup));
+    assertEquals(0, tree.getMoveNum(setup));
+    assertEquals(1, tree.getMoveNum(move));
+    assertEquals(Move.MOVE_WHITE, tree.getColorNextMove(setup));
+    assertEquals("[[(9,9)], [(3,3), (15,15)], []]", Arrays.toString(tree.getSetupInfo(setup)));
+    assertEquals(0, tree.getSetupInfo(move)[1].size());
+
+    Move root = tree.toMove();
+    assertEquals(builder.SGFprintMoves(root), builder.SGFprintMoves(MoveTree.copyOf(root).toMove()));
+    assertEquals(Move.MOVE_WHITE, root.next().getColorNextMove());
+  }
+
+  /**
+   * Copying random trees both ways must give back the same SGF, and the
+   * same answers to every query.
+   */
+  @Test
+  public void testRandomTrees() {
+    Random random = new Random(17);
+    for (int i = 0; i < 50; i++) {
+      Move root = new Move();
+      grow(root, Move.MOVE_BLACK, random, 0);
+      MoveTree tree = MoveTree.copyOf(root);
+      compare(root, tree, MoveTree.ROOT);
+      tree.trimToSize();
+      assertEquals(builder.SGFprintMoves(root), builder.SGFprintMoves(tree.toMove()));
+    }
+  }
+
+  @Test
+  public void testLongGame() {
+    MoveTree tree = new MoveTree();
+    int node = MoveTree.ROOT;
+    for (int i = 0; i < 200_000; i++) {
+      node = tree.addMove(node, i % 19, i / 19 % 19, i % 2 == 0 ? Move.MOVE_BLACK : Move.MOVE_WHITE);
+    }
+    assertEquals(200_000, tree.getMoveNum(node));
+    assertEquals(200_000 * ";B[aa]".length(), builder.SGFprintMoves(tree.toMove()).length());
+  }
+
+  private static void compare(Move move, MoveTree tree, int node) {
+    assertEquals(move.getColor(), tree.getColor(node));
+    assertEquals(move.getX(), tree.getX(node));
+    assertEquals(move.getY(), tree.getY(node));
+    assertEquals(move.getMoveNum(), tree.getMoveNum(node));
+    assertEquals(move.getComment(), tree.getComment(node));
+    assertEquals(move.numChildren(), tree.numChildren(node));
+    for (int i = 0; i < move.numChildren(); i++) {
+      int child = tree.next(node, i);
+      assertEquals(node, tree.getParent(child));
+      compare(move.next(i), tree, child);
+    }
+  }
+
+  private static void grow(Move parent, char color, Random random, int depth) {
+    int children = depth > 6 ? 0 : random.nextInt(depth == 0 ? 3 : 4);
+    for (int i = 0; i < children; i++) {
+      Move child;
+      if (random.nextInt(8) == 0) {
+        child = new Move(parent);
+        child.setupBlack(random.nextInt(19), random.nextInt(19));
+        child.setupWhite(random.nextInt(19), random.nextInt(19));
+      } else {
+        child = new Move(random.nextInt(19), random.nextInt(19), color, parent);
+      }
+      if (random.nextInt(5) == 0) {
+        child.setComment("c" + depth);
+      }
+      grow(child, color == Move.MOVE_BLACK ? Move.MOVE_WHITE : Move.MOVE_BLACK, random, depth + 1);
+    }
+  }
+}
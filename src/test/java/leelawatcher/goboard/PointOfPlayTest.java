@@ -0,0 +1,32 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PointOfPlayTest {
+
+  @Test
+  public void testInterned() {
+    for (int y = 0; y < Move.MAX_SIZE; y++) {
+      for (int x = 0; x < Move.MAX_SIZE; x++) {
+        PointOfPlay p = PointOfPlay.of(x, y);
+        assertSame(p, PointOfPlay.of(x, y));
+        assertEquals(x, p.getX());
+        assertEquals(y, p.getY());
+      }
+    }
+    assertSame(PointOfPlay.PASS, PointOfPlay.of(Move.PASS, Move.PASS));
+  }
+
+  @Test
+  public void testOffBoard() {
+    PointOfPlay p = PointOfPlay.of(-1, 5);
+    assertNotSame(p, PointOfPlay.of(-1, 5));
+    assertEquals(p, PointOfPlay.of(-1, 5));
+    assertEquals(p.hashCode(), PointOfPlay.of(-1, 5).hashCode());
+    assertEquals("(-1,5)", p.toString());
+  }
+}
@@ -0,0 +1,58 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PositionTest {
+
+  // black captures the white stone at 1,0 by playing 2,0
+  private static Board capture(boolean trackGroups) throws IllegalMoveException {
+    Board board = new Board(trackGroups);
+    board.doMove(0, 0);
+    board.doMove(1, 0);
+    board.doMove(1, 1);
+    board.doMove(10, 10);
+    board.doMove(2, 0);
+    return board;
+  }
+
+  @Test
+  public void testHistoryUnchangedByCapture() throws IllegalMoveException {
+    for (boolean trackGroups : new boolean[]{false, true}) {
+      Board board = capture(trackGroups);
+      assertFalse(board.getCurrPos().stoneAt(1, 0));
+      Position before = board.getPosition(board.getNumPositions() - 2);
+      assertTrue(before.whiteAt(1, 0));
+      assertFalse(before.stoneAt(2, 0));
+      assertEquals(Zobrist.hash(before), before.getHash());
+    }
+  }
+
+  @Test
+  public void testBuilderLeavesBaseUnchanged() throws IllegalMoveException {
+    Board board = new Board();
+    board.doMove(0, 0);
+    board.doMove(1, 0);
+    board.doMove(1, 1);
+    Position base = board.getCurrPos();
+    assertSame(base, board.getCurrPos());
+    Position.Builder builder = new Position.Builder(base);
+    assertSame(base, builder.build());
+
+    Position removed = builder.removeStoneAt(0, 0).build();
+    assertFalse(removed.stoneAt(0, 0));
+    assertTrue(removed.whiteAt(1, 0));
+    assertEquals(Zobrist.hash(removed), removed.getHash());
+    assertTrue(base.blackAt(0, 0));
+    assertEquals(Zobrist.hash(base), base.getHash());
+
+    Position both = builder.removeStoneAt(1, 0).build();
+    assertFalse(both.stoneAt(1, 0));
+    assertTrue(removed.whiteAt(1, 0));
+    assertEquals(Zobrist.hash(both), both.getHash());
+  }
+}
@@ -0,0 +1,79 @@
+package leelawatcher.goboard;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZobristTest {
+
+  @Test
+  public void testEmptyBoard() {
+    assertEquals(0, new Position().getHash());
+    assertTrue(new Board().hasOccurred(0));
+  }
+
+  @Test
+  public void testSameStonesSameHash() throws IllegalMoveException {
+    Board first = new Board();
+    first.doMove(3, 3);
+    first.doMove(15, 15);
+    first.doMove(3, 15);
+    Board second = new Board();
+    second.doMove(3, 15);
+    second.doMove(15, 15);
+    second.doMove(3, 3);
+    assertEquals(first.getCurrPos().getHash(), second.getCurrPos().getHash());
+
+    Board colorsSwapped = new Board();
+    colorsSwapped.doMove(15, 15);
+    colorsSwapped.doMove(3, 3);
+    colorsSwapped.doMove(3, 15);
+    assertNotEquals(first.getCurrPos().getHash(), colorsSwapped.getCurrPos().getHash());
+  }
+
+  @Test
+  public void testSetUpAndUndo() throws IllegalMoveException {
+    Board board = new Board();
+    board.setUp(Collections.singletonList(PointOfPlay.of(4, 4)),
+        Collections.singletonList(PointOfPlay.of(5, 5)), Collections.emptyList(), true);
+    long setUp = board.getCurrPos().getHash();
+    assertEquals(Zobrist.hash(board.getCurrPos()), setUp);
+
+    board.doMove(6, 6);
+    long played = board.getCurrPos().getHash();
+    assertTrue(board.hasOccurred(played));
+    board.undoMove();
+    assertFalse(board.hasOccurred(played));
+    assertTrue(board.hasOccurred(setUp));
+  }
+
+  /**
+   * The hash maintained as stones are played and captured must always equal
+   * the hash computed from scratch.
+   */
+  @Test
+  public void testIncrementalHash() throws IllegalMoveException {
+    Random random = new Random(7);
+    for (int game = 0; game < 3; game++) {
+      Board board = new Board(game % 2 == 0);
+      for (int move = 0; move < 400; move++) {
+        int x = random.nextInt(19);
+        int y = random.nextInt(19);
+        try {
+          board.doMove(x, y);
+        } catch (IllegalMoveException e) {
+          continue;
+        }
+        Position pos = board.getCurrPos();
+        assertEquals(Zobrist.hash(pos), pos.getHash());
+        assertTrue(board.hasOccurred(pos.getHash()));
+      }
+    }
+  }
+}
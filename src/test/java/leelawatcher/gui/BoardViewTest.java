@@ -0,0 +1,83 @@
+package leelawatcher.gui;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.goboard.Position;
+import org.junit.Test;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class BoardViewTest {
+
+  @Test
+  public void testChangedPoints() throws IllegalMoveException {
+    Board board = new Board();
+    board.doMove(0, 0);  // B
+    board.doMove(1, 0);  // W
+    Position before = board.getCurrPos();
+    board.doMove(5, 5);  // B
+    board.doMove(0, 1);  // W captures 0,0
+    List<PointOfPlay> changed = BoardView.changedPoints(before, board.getCurrPos(), 19);
+    assertEquals(new HashSet<>(Arrays.asList(
+        PointOfPlay.of(0, 0), PointOfPlay.of(5, 5), PointOfPlay.of(0, 1), PointOfPlay.of(1, 0))),
+        new HashSet<>(changed));
+    assertEquals(4, changed.size());
+  }
+
+  /**
+   * Repainting only the changed points over the old picture must give the
+   * same picture as painting the whole new board.
+   */
+  @Test
+  public void testClippedRepaint() throws IllegalMoveException {
+    ImageMaker imageMaker = new ImageMaker();
+    int pixels = 317;
+    Random random = new Random(3);
+    Board board = new Board();
+    BufferedImage shown = paint(imageMaker, pixels, board.getCurrPos(), null);
+    Position before = board.getCurrPos();
+    for (int move = 0; move < 300; move++) {
+      try {
+        board.doMove(random.nextInt(19), random.nextInt(19));
+      } catch (IllegalMoveException e) {
+        continue;
+      }
+      Position after = board.getCurrPos();
+      for (PointOfPlay p : BoardView.changedPoints(before, after, 19)) {
+        paint(imageMaker, pixels, after, imageMaker.stoneBounds(pixels, 19, p.getX(), p.getY()), shown);
+      }
+      before = after;
+    }
+    BufferedImage expected = paint(imageMaker, pixels, before, null);
+    for (int x = 0; x < pixels; x++) {
+      for (int y = 0; y < pixels; y++) {
+        assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), shown.getRGB(x, y));
+      }
+    }
+  }
+
+  private static BufferedImage paint(ImageMaker imageMaker, int pixels, Position pos, Rectangle clip) {
+    BufferedImage image = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_RGB);
+    return paint(imageMaker, pixels, pos, clip, image);
+  }
+
+  private static BufferedImage paint(ImageMaker imageMaker, int pixels, Position pos, Rectangle clip,
+                                     BufferedImage image) {
+    Graphics2D g = image.createGraphics();
+    if (clip != null) {
+      g.setClip(clip);
+    }
+    imageMaker.paintBoard(g, 0, 0, pixels, 19, pos);
+    g.dispose();
+    return image;
+  }
+}
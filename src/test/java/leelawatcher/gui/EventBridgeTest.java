@@ -0,0 +1,62 @@
+package leelawatcher.gui;
+
+import leelawatcher.goboard.PointOfPlay;
+import leelawatcher.parser.GameEventListener;
+import org.junit.Test;
+
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventBridgeTest {
+
+  @Test
+  public void testMovesShareRepaints() throws InterruptedException, InvocationTargetException {
+    List<String> seen = new ArrayList<>();
+    CountDownLatch ended = new CountDownLatch(1);
+    int[] repaints = new int[1];
+    EventBridge bridge = new EventBridge(new GameEventListener() {
+      @Override
+      public void gameStarted() {
+        assertTrue(SwingUtilities.isEventDispatchThread());
+        seen.add("start");
+      }
+
+      @Override
+      public void movePlayed(int moveNumber, String move, PointOfPlay point) {
+        seen.add(move);
+      }
+
+      @Override
+      public void gameEnded() {
+        seen.add("end");
+        ended.countDown();
+      }
+    }, () -> {
+      assertTrue(SwingUtilities.isEventDispatchThread());
+      repaints[0]++;
+    });
+
+    bridge.gameStarted();
+    for (int i = 1; i <= 200; i++) {
+      bridge.movePlayed(i, "M" + i, null);
+    }
+    bridge.gameEnded();
+    assertTrue(ended.await(10, TimeUnit.SECONDS));
+    // let the frame finish with its repaint
+    SwingUtilities.invokeAndWait(() -> { });
+
+    assertEquals(202, seen.size());
+    assertEquals("start", seen.get(0));
+    assertEquals("M200", seen.get(200));
+    assertEquals("end", seen.get(201));
+    // the events took far less than a frame to queue
+    assertTrue(repaints[0] >= 1 && repaints[0] <= 2);
+  }
+}
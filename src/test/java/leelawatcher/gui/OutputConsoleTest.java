@@ -0,0 +1,38 @@
+package leelawatcher.gui;
+
+import org.junit.Test;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+
+import static org.junit.Assert.assertEquals;
+
+public class OutputConsoleTest {
+
+  @Test
+  public void testKeepsLatestLines() throws InterruptedException, InvocationTargetException {
+    JTextArea area = new JTextArea();
+    OutputConsole console = new OutputConsole(area, 10);
+    for (int i = 0; i < 5; i++) {
+      console.append("Move:" + i + "\n");
+    }
+    SwingUtilities.invokeAndWait(() -> { });
+    assertEquals("Move:0\nMove:1\nMove:2\nMove:3\nMove:4\n", area.getText());
+
+    // more than are kept, both between updates and in all
+    for (int i = 5; i < 30; i++) {
+      console.append("Move:" + i + "\n");
+      if (i == 12) {
+        SwingUtilities.invokeAndWait(() -> { });
+      }
+    }
+    SwingUtilities.invokeAndWait(() -> { });
+    StringBuilder expected = new StringBuilder();
+    for (int i = 20; i < 30; i++) {
+      expected.append("Move:").append(i).append('\n');
+    }
+    assertEquals(expected.toString(), area.getText());
+    assertEquals(area.getDocument().getLength(), area.getCaretPosition());
+  }
+}
@@ -0,0 +1,45 @@
+package leelawatcher.headless;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HeadlessWatcherTest {
+
+  private static final String OUTPUT =
+      "Engine has started.\nInfinite thinking time set.\n" +
+          " 1 (B Q16) 2 (W D4) 3 (B pass)\n 4 (W resign)\nGame has ended.\n" +
+          "Engine has started.\nInfinite thinking time set.\n 1 (Q4) 2 (D16)\n" +
+          "Game has ended.\n" +
+          "Engine has started.\nInfinite thinking time set.\n 1 (Q4)\n";
+
+  @Test
+  public void testCountsFinishedGames() {
+    ByteArrayOutputStream stats = new ByteArrayOutputStream();
+    HeadlessWatcher watcher = new HeadlessWatcher(null, new PrintStream(stats));
+    assertTrue(watcher.watch(new ByteArrayInputStream(OUTPUT.getBytes(StandardCharsets.ISO_8859_1))));
+
+    // the last game has not finished
+    assertEquals(2, watcher.getGames());
+    assertEquals(6, watcher.getTotalMoves());
+    String printed = new String(stats.toByteArray(), StandardCharsets.ISO_8859_1);
+    assertTrue(printed, printed.startsWith("Game 1: 4 moves"));
+    assertTrue(printed, printed.contains("Game 2: 2 moves"));
+  }
+
+  @Test
+  public void testContinuesAfterIllegalMove() {
+    HeadlessWatcher watcher = new HeadlessWatcher(null, new PrintStream(new ByteArrayOutputStream()));
+    String illegal = "Infinite thinking time set.\n 1 (B Q16) 2 (W Q16) 3 (B D4)\nGame has ended.\n" +
+        "Infinite thinking time set.\n 1 (B Q16)\nGame has ended.\nInfinite thinking time set.\n";
+    assertTrue(watcher.watch(new ByteArrayInputStream(illegal.getBytes(StandardCharsets.ISO_8859_1))));
+    assertEquals(2, watcher.getGames());
+    assertEquals(1, watcher.getIllegalMoves());
+  }
+}
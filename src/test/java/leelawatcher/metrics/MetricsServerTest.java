@@ -0,0 +1,73 @@
+package leelawatcher.metrics;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsServerTest {
+
+  @Test
+  public void testScrape() throws IOException {
+    Metrics.counter("test.server.games").add(3);
+    Histogram histogram = Metrics.histogram("test.server.moves");
+    histogram.record(1);
+    histogram.record(5);
+    histogram.record(6);
+    try (MetricsServer server = new MetricsServer(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      HttpURLConnection connection = open(server, "/metrics");
+      assertEquals(200, connection.getResponseCode());
+      assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+      String text = read(connection.getInputStream());
+      assertTrue(text.contains("# TYPE leelawatcher_test_server_games_total counter\n"));
+      assertTrue(text.contains("\nleelawatcher_test_server_games_total 3\n"));
+      assertTrue(text.contains("# TYPE leelawatcher_test_server_moves histogram\n"));
+      assertTrue(text.contains("\nleelawatcher_test_server_moves_bucket{le=\"0\"} 0\n"));
+      assertTrue(text.contains("\nleelawatcher_test_server_moves_bucket{le=\"1\"} 1\n"));
+      assertTrue(text.contains("\nleelawatcher_test_server_moves_bucket{le=\"3\"} 1\n"));
+      assertTrue(text.contains("\nleelawatcher_test_server_moves_bucket{le=\"7\"} 3\n"));
+      assertTrue(!text.contains("leelawatcher_test_server_moves_bucket{le=\"15\"}"));
+      assertTrue(text.contains("\nleelawatcher_test_server_moves_bucket{le=\"+Inf\"} 3\n"));
+      assertTrue(text.contains("\nleelawatcher_test_server_moves_sum 12\n"));
+      assertTrue(text.contains("\nleelawatcher_test_server_moves_count 3\n"));
+    }
+  }
+
+  @Test
+  public void testOtherRequests() throws IOException {
+    try (MetricsServer server = new MetricsServer(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      assertEquals(404, open(server, "/metrics/other").getResponseCode());
+      HttpURLConnection post = open(server, "/metrics");
+      post.setRequestMethod("POST");
+      assertEquals(405, post.getResponseCode());
+    }
+  }
+
+  private static HttpURLConnection open(MetricsServer server, String path) throws IOException {
+    URL url = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(), path);
+    return (HttpURLConnection) url.openConnection();
+  }
+
+  private static String read(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int n;
+    try (InputStream input = in) {
+      while ((n = input.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,61 @@
+package leelawatcher.metrics;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+  @Test
+  public void testCounter() {
+    Counter counter = Metrics.counter("test.counter");
+    assertSame(counter, Metrics.counter("test.counter"));
+    long before = counter.get();
+    counter.increment();
+    counter.add(41);
+    assertEquals(before + 42, counter.get());
+  }
+
+  @Test
+  public void testHistogram() {
+    Histogram histogram = new Histogram();
+    assertEquals(0, histogram.getPercentile(50));
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500500, histogram.getSum());
+    assertEquals(500.5, histogram.getMean(), 1e-9);
+    assertEquals(1000, histogram.getMax());
+    long median = histogram.getPercentile(50);
+    assertTrue(median >= 500 && median < 1000);
+    assertEquals(1000, histogram.getPercentile(99));
+    assertEquals(1000, histogram.getPercentile(100));
+    histogram.record(-5);
+    assertEquals(0, histogram.getPercentile(0.01));
+  }
+
+  @Test
+  public void testSummaryAndMBean() throws Exception {
+    Metrics.counter("test.bytes").add(7);
+    Metrics.histogram("test.nanos").record(3);
+    Map<String, Number> snapshot = Metrics.snapshot();
+    assertEquals(7L, snapshot.get("test.bytes").longValue());
+    assertEquals(3L, snapshot.get("test.nanos.max"));
+    assertTrue(Metrics.summary().contains(" test.nanos.mean=3.0"));
+
+    Metrics.registerMBean();
+    Metrics.registerMBean();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+    assertEquals(7L, ((Number) server.getAttribute(name, "test.bytes")).longValue());
+    assertTrue(server.getMBeanInfo(name).getAttributes().length >= 6);
+  }
+}
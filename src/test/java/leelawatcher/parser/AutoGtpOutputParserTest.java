@@ -1,40 +1,95 @@
 package leelawatcher.parser;
 
+import leelawatcher.goboard.Board;
 import leelawatcher.goboard.PointOfPlay;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static junit.framework.TestCase.assertNotNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class AutoGtpOutputParserTest {
 
   @Test // issue #13
   public void testResign() {
-    AutoGtpOutputParser parser = new AutoGtpOutputParser(null);
+    AutoGtpOutputParser parser = new AutoGtpOutputParser();
     assertNull(parser.parseMove("resign"));
   }
 
   @Test
   public void testPass() {
-    AutoGtpOutputParser parser = new AutoGtpOutputParser(null);
+    AutoGtpOutputParser parser = new AutoGtpOutputParser();
     assertNull(parser.parseMove("pass"));
   }
 
   @Test(expected = RuntimeException.class)
   public void testBadMove() {
-    AutoGtpOutputParser parser = new AutoGtpOutputParser(null);
+    AutoGtpOutputParser parser = new AutoGtpOutputParser();
     parser.parseMove("resign!");
     fail("'foo' should not be a valid move");
   }
 
   @Test
   public void testMove() {
-    AutoGtpOutputParser parser = new AutoGtpOutputParser(null);
+    AutoGtpOutputParser parser = new AutoGtpOutputParser();
     PointOfPlay move = parser.parseMove("D3");
     assertNotNull(move);
     assertEquals(move.getX(),3);
     assertEquals(move.getY(),2);
   }
+
+  @Test
+  public void testGameEvents() {
+    String output = "Infinite thinking time set.\n 1 (B Q16) 2 (W pass)\nGame has ended.\n" +
+        "Infinite thinking time set.\n 1 (D4)";
+    List<String> events = new ArrayList<>();
+    AutoGtpOutputParser parser = new AutoGtpOutputParser();
+    GameEventListener recorder = new GameEventListener() {
+      @Override
+      public void gameStarted() {
+        events.add("started");
+      }
+
+      @Override
+      public void movePlayed(int moveNumber, String move, PointOfPlay point) {
+        events.add(moveNumber + " " + move + " " + (point == null ? "-" : point.getX() + "," + point.getY()));
+      }
+
+      @Override
+      public void gameEnded() {
+        events.add("ended");
+      }
+
+      @Override
+      public void rawLine(String line) {
+        events.add("line " + line);
+      }
+    };
+    Board board = new Board();
+    BoardUpdater updater = new BoardUpdater(board);
+    parser.addGameEventListener(updater);
+    parser.addGameEventListener(recorder);
+
+    assertTrue(parser.run(new ByteArrayInputStream(output.getBytes(StandardCharsets.ISO_8859_1))));
+    // the output is read in one chunk, and its lines are reported first
+    assertEquals(Arrays.asList(
+        "line Infinite thinking time set.",
+        "line  1 (B Q16) 2 (W pass)",
+        "line Game has ended.",
+        "line Infinite thinking time set.",
+        "started", "1 Q16 15,15", "2 pass -",
+        "ended",
+        "started", "1 D4 3,3"), events);
+    assertTrue(parser.isInProgress());
+    assertTrue(board.getCurrPos().blackAt(3, 3));
+    assertEquals(0, updater.getIllegalMoves());
+  }
 }
@@ -0,0 +1,83 @@
+package leelawatcher.parser;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AutoGtpTokenizerTest {
+
+  // the pattern the parser used to re-run over its whole buffer after each byte
+  private static final Pattern LEGACY_EVENT =
+      Pattern.compile("^(.*set\\.|\\s*\\d+\\s\\((?:[BW]\\s)?(\\w+)\\)\\s*|Game).*", Pattern.DOTALL);
+
+  private static final String OUTPUT =
+      "AutoGTP v11\nGot new job: selfplay\nEngine has started.\nInfinite thinking time set.\n" +
+          " 1 (B Q16) 2 (W D4) 3 (B pass)\n 4 (W resign)\nGame has ended.\nScore: W+Resign\n" +
+          "Engine has started.\nInfinite thinking time set.\n 1 (Q4) 2 (D16)\n" +
+          "Game";
+
+  @Test
+  public void testMatchesLegacyEvents() {
+    assertEquals(legacyEvents(OUTPUT), tokenize(OUTPUT, OUTPUT.length()));
+  }
+
+  @Test
+  public void testChunkBoundaries() {
+    List<String> expected = legacyEvents(OUTPUT);
+    for (int chunk = 1; chunk < 20; chunk++) {
+      assertEquals("chunk size " + chunk, expected, tokenize(OUTPUT, chunk));
+    }
+  }
+
+  @Test
+  public void testMoveEvents() {
+    assertEquals(Arrays.asList("Infinite thinking time set.", " 1 (B Q16)", " 2 (W D4)"),
+        tokenize("Infinite thinking time set. 1 (B Q16) 2 (W D4) 3 (B", 7));
+  }
+
+  @Test
+  public void testIncompleteEventIsHeld() {
+    AutoGtpTokenizer tokenizer = new AutoGtpTokenizer();
+    byte[] bytes = "Downloading network 42%".getBytes(StandardCharsets.ISO_8859_1);
+    tokenizer.feed(bytes, 0, bytes.length);
+    assertNull(tokenizer.nextEvent());
+    assertEquals(bytes.length, tokenizer.pendingLength());
+  }
+
+  private static List<String> tokenize(String output, int chunkSize) {
+    byte[] bytes = output.getBytes(StandardCharsets.ISO_8859_1);
+    AutoGtpTokenizer tokenizer = new AutoGtpTokenizer();
+    List<String> events = new ArrayList<>();
+    for (int off = 0; off < bytes.length; off += chunkSize) {
+      tokenizer.feed(bytes, off, Math.min(chunkSize, bytes.length - off));
+      String event;
+      while ((event = tokenizer.nextEvent()) != null) {
+        events.add(event);
+      }
+    }
+    return events;
+  }
+
+  private static List<String> legacyEvents(String output) {
+    StringBuilder buffer = new StringBuilder();
+    List<String> events = new ArrayList<>();
+    for (char c : output.toCharArray()) {
+      buffer.append(c);
+      Matcher m = LEGACY_EVENT.matcher(buffer);
+      if (m.matches()) {
+        String evt = m.group(1);
+        buffer.delete(0, evt.length());
+        events.add(evt);
+      }
+    }
+    return events;
+  }
+}
@@ -0,0 +1,125 @@
+package leelawatcher.parser;
+
+import leelawatcher.goboard.Board;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogReplayerTest {
+
+  private static final String OUTPUT =
+      "Engine has started.\nInfinite thinking time set.\n" +
+          " 1 (B Q16) 2 (W D4) 3 (B pass)\n 4 (W resign)\nGame has ended.\n" +
+          "Engine has started.\nInfinite thinking time set.\n 1 (Q4) 2 (D16)\n" +
+          "Game has ended.\n" +
+          "Engine has started.\nInfinite thinking time set.\n 1 (Q4)\n";
+
+  // pieces of output that are, or are nearly, events
+  private static final String[] PIECES = {
+      " 1 (B Q16)", " 12 (W D4)", " 3 (pass)", " 40 (W resign)", " 7 (B C3)", "(B Q16)", " 5  (B Q3)",
+      " 6 (B  Q3)", " 9 (b c3)", "Infinite thinking time set.", "Game", "Game has ended.",
+      "set", ".", "\n", " ", "\r\n", "x", ")", "(", "Q16", "9"
+  };
+
+  @Test
+  public void testSplitsGames() {
+    LogReplayer replayer = new LogReplayer(new Board(true));
+    List<Integer> positions = new ArrayList<>();
+    replayer.setGameEndedListener(board -> positions.add(board.getNumPositions()));
+    replayer.replay(ByteBuffer.wrap(OUTPUT.getBytes(StandardCharsets.ISO_8859_1)));
+
+    // the last game has not finished
+    assertEquals(2, replayer.getGames());
+    assertEquals(6, replayer.getMoves());
+    assertEquals(0, replayer.getIllegalMoves());
+    assertEquals(5, (int) positions.get(0));
+    assertEquals(3, (int) positions.get(1));
+  }
+
+  @Test
+  public void testAbandonsGames() {
+    String output = "Infinite thinking time set.\n 1 (B Q16) 2 (W Q16) 3 (B D4)\nGame has ended.\n" +
+        "Infinite thinking time set.\n 1 (B 16) 2 (W Q4)\nGame has ended.\n" +
+        "Infinite thinking time set.\n 1 (B Q16)\nGame has ended.\nInfinite thinking time set.\n";
+    LogReplayer replayer = new LogReplayer(new Board(true));
+    replayer.replay(ByteBuffer.wrap(output.getBytes(StandardCharsets.ISO_8859_1)));
+    assertEquals(3, replayer.getGames());
+    assertEquals(6, replayer.getMoves());
+    assertEquals(1, replayer.getIllegalMoves());
+    assertEquals(1, replayer.getUnreadableMoves());
+    assertEquals(2, replayer.getBoard().getNumPositions());
+  }
+
+  /**
+   * Random output must be split into the same games, with the same final
+   * positions, as the parser splits it.
+   */
+  @Test
+  public void testAgreesWithParser() {
+    Random random = new Random(5);
+    int compared = 0;
+    for (int i = 0; i < 200; i++) {
+      StringBuilder output = new StringBuilder();
+      for (int piece = 0; piece < 60; piece++) {
+        output.append(PIECES[random.nextInt(PIECES.length)]);
+      }
+      byte[] bytes = output.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+      List<Long> expected = new ArrayList<>();
+      AutoGtpOutputParser parser = new AutoGtpOutputParser();
+      parser.setEcho(false);
+      BoardUpdater updater = new BoardUpdater(new Board(true));
+      parser.addGameEventListener(updater);
+      parser.addGameEventListener(new GameEventListener() {
+        @Override
+        public void gameEnded() {
+          expected.add(updater.getBoard().getCurrPos().getHash());
+        }
+      });
+      if (!parser.run(new ByteArrayInputStream(bytes))) {
+        continue;  // the parser gives up on a move it can't read
+      }
+
+      List<Long> replayed = new ArrayList<>();
+      LogReplayer replayer = new LogReplayer(new Board(true));
+      replayer.setGameEndedListener(board -> replayed.add(board.getCurrPos().getHash()));
+      // in pieces, to check that events may span them
+      int split = random.nextInt(bytes.length + 1);
+      replayer.replay(ByteBuffer.wrap(bytes, 0, split));
+      replayer.replay(ByteBuffer.wrap(bytes, split, bytes.length - split));
+      assertEquals(output.toString(), expected, replayed);
+      compared++;
+    }
+    assertTrue(compared > 150);
+  }
+
+  @Test
+  public void testMapsFileInPieces() throws Exception {
+    File log = folder.newFile("autogtp.log");
+    StringBuilder output = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      output.append(OUTPUT);
+    }
+    Files.write(log.toPath(), output.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+    LogReplayer replayer = new LogReplayer(new Board(true), 7);
+    replayer.replay(log);
+    // the unfinished game in each copy but the last is ended by the next
+    assertEquals(3 * 20 - 1, replayer.getGames());
+  }
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+}
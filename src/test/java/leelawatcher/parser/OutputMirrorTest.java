@@ -0,0 +1,84 @@
+package leelawatcher.parser;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.PointOfPlay;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OutputMirrorTest {
+
+  private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+  private OutputMirror mirror(OutputMirror.Mode mode) {
+    return new OutputMirror(mode, Channels.newChannel(written));
+  }
+
+  private String written() {
+    return new String(written.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testLine() {
+    OutputMirror mirror = mirror(OutputMirror.Mode.LINE);
+    mirror.print("1 (B Q16) 2 (W");
+    assertEquals("", written());
+    mirror.print(" D4)\n3 (B ");
+    assertEquals("1 (B Q16) 2 (W D4)\n", written());
+    mirror.print("C3)\n");
+    assertEquals("1 (B Q16) 2 (W D4)\n3 (B C3)\n", written());
+    assertEquals(written.size(), mirror.getBytesMirrored());
+  }
+
+  @Test
+  public void testBuffered() {
+    OutputMirror mirror = mirror(OutputMirror.Mode.BUFFERED);
+    mirror.print("1 (B Q16)\n");
+    assertEquals("", written());
+    mirror.flush();
+    assertEquals("1 (B Q16)\n", written());
+
+    // more than the buffer holds is written without waiting to be flushed
+    byte[] big = new byte[200 * 1024];
+    Arrays.fill(big, (byte) 'x');
+    mirror.write(big, 0, big.length);
+    int early = written.size();
+    mirror.flush();
+    assertEquals(10 + big.length, written.size());
+    assertEquals(written.size(), mirror.getBytesMirrored());
+    assertTrue(early > 10);
+    byte[] all = written.toByteArray();
+    assertArrayEquals(big, Arrays.copyOfRange(all, 10, all.length));
+  }
+
+  @Test
+  public void testOff() {
+    OutputMirror mirror = mirror(OutputMirror.Mode.OFF);
+    mirror.print("1 (B Q16)\n");
+    mirror.flush();
+    assertEquals("", written());
+    assertEquals(0, mirror.getBytesMirrored());
+  }
+
+  @Test
+  public void testIllegalMovesReported() {
+    for (OutputMirror.Mode mode : OutputMirror.Mode.values()) {
+      written.reset();
+      OutputMirror mirror = mirror(mode);
+      BoardUpdater updater = new BoardUpdater(new Board(), mirror);
+      updater.gameStarted();
+      updater.movePlayed(1, "D4", PointOfPlay.of(3, 3));
+      updater.movePlayed(2, "D4", PointOfPlay.of(3, 3));
+      mirror.flush();
+      assertEquals(1, updater.getIllegalMoves());
+      assertEquals(mode != OutputMirror.Mode.OFF, written().startsWith("Illegal move attempted:"));
+    }
+  }
+}
@@ -32,14 +32,14 @@ public class QuickRulesTest {
     List<PointOfPlay> white = new ArrayList<>();
     List<PointOfPlay> black = new ArrayList<>();
 
-    white.add(new PointOfPlay(1,0));
-    white.add(new PointOfPlay(0,1));
+    white.add(PointOfPlay.of(1,0));
+    white.add(PointOfPlay.of(0,1));
 
-    black.add(new PointOfPlay(2,0));
-    black.add(new PointOfPlay(1,1));
-    black.add(new PointOfPlay(2,1));
-    black.add(new PointOfPlay(0,2));
-    black.add(new PointOfPlay(1,2));
+    black.add(PointOfPlay.of(2,0));
+    black.add(PointOfPlay.of(1,1));
+    black.add(PointOfPlay.of(2,1));
+    black.add(PointOfPlay.of(0,2));
+    black.add(PointOfPlay.of(1,2));
 
 
     llCornerSelf.setUp(white,black, Collections.emptyList(), false);
@@ -86,17 +86,17 @@ public class QuickRulesTest {
     List<PointOfPlay> white = new ArrayList<>();
     List<PointOfPlay> black = new ArrayList<>();
 
-    white.add(new PointOfPlay(0,0));
-    white.add(new PointOfPlay(0,1));
-    white.add(new PointOfPlay(0,3));
-    white.add(new PointOfPlay(1,3));
-    white.add(new PointOfPlay(2,2));
-    white.add(new PointOfPlay(2,1));
-    white.add(new PointOfPlay(2,0));
+    white.add(PointOfPlay.of(0,0));
+    white.add(PointOfPlay.of(0,1));
+    white.add(PointOfPlay.of(0,3));
+    white.add(PointOfPlay.of(1,3));
+    white.add(PointOfPlay.of(2,2));
+    white.add(PointOfPlay.of(2,1));
+    white.add(PointOfPlay.of(2,0));
 
-    black.add(new PointOfPlay(0,2));
-    black.add(new PointOfPlay(1,1));
-    black.add(new PointOfPlay(1,2));
+    black.add(PointOfPlay.of(0,2));
+    black.add(PointOfPlay.of(1,1));
+    black.add(PointOfPlay.of(1,2));
 
     issue4.setUp(white,black, Collections.emptyList(), true);
 
@@ -104,11 +104,60 @@ public class QuickRulesTest {
 
     System.out.println(issue4.getCurrPos());
 
-    assertFalse(issue4.getCurrPos().stoneAt(new PointOfPlay(0,0)));
-    assertFalse(issue4.getCurrPos().stoneAt(new PointOfPlay(0,1)));
+    assertFalse(issue4.getCurrPos().stoneAt(PointOfPlay.of(0,0)));
+    assertFalse(issue4.getCurrPos().stoneAt(PointOfPlay.of(0,1)));
     assertTrue(issue4.getCurrPos().colorAt(0,2) == Move.MOVE_BLACK);
     assertTrue(issue4.getCurrPos().colorAt(1,2) == Move.MOVE_BLACK);
     assertTrue(issue4.getCurrPos().colorAt(1,1) == Move.MOVE_BLACK);
     assertTrue(issue4.getCurrPos().colorAt(1,0) == Move.MOVE_BLACK);
   }
+
+  @Test
+  public void testKo() throws IllegalMoveException {
+    for (KoRule koRule : KoRule.values()) {
+      assertKoRetakeIllegal(koRule);
+    }
+  }
+
+  private void assertKoRetakeIllegal(KoRule koRule) throws IllegalMoveException {
+    QuickRules rules = new QuickRules(koRule);
+    Board ko = new Board(rules, false);
+
+    /* Setting up this (black plays a, then white may not retake at b):
+
+    . B W . .
+    B b a W .
+    . B W . .
+
+    */
+    List<PointOfPlay> white = new ArrayList<>();
+    List<PointOfPlay> black = new ArrayList<>();
+
+    white.add(PointOfPlay.of(1,1));
+    white.add(PointOfPlay.of(2,0));
+    white.add(PointOfPlay.of(2,2));
+    white.add(PointOfPlay.of(3,1));
+
+    black.add(PointOfPlay.of(0,1));
+    black.add(PointOfPlay.of(1,0));
+    black.add(PointOfPlay.of(1,2));
+
+    ko.setUp(white, black, Collections.emptyList(), true);
+
+    ko.doMove(2,1);
+    assertFalse(ko.getCurrPos().stoneAt(PointOfPlay.of(1,1)));
+
+    assertTrue(rules.isKo(PointOfPlay.of(1,1), ko));
+    assertFalse(rules.isSelfCapture(PointOfPlay.of(1,1), ko));
+    assertFalse(rules.isLegalMove(PointOfPlay.of(1,1), ko));
+    assertFalse(rules.isLegalMove(PointOfPlay.of(2,1), ko));
+    assertTrue(rules.isLegalMove(PointOfPlay.of(Move.PASS, Move.PASS), ko));
+
+    try {
+      ko.doMove(1,1);
+      fail("Immediately retaking the ko should be illegal under " + koRule + "\n" + ko.getCurrPos());
+    } catch (IllegalMoveException e) {
+      // success
+    }
+  }
 }
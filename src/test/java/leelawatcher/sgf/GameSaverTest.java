@@ -0,0 +1,77 @@
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Game;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GameSaverTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSavesEveryGame() throws Exception {
+    for (GameSaver.Sync sync : GameSaver.Sync.values()) {
+      File dir = folder.newFolder(sync.name());
+      GameSaver saver = new GameSaver(dir, 100, sync);
+      List<Game> games = new ArrayList<>();
+      List<File> files = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        Game game = new Game("Leela", "Leela", 0, 7.5f);
+        game.doMove(i % 19, i / 19);
+        games.add(game);
+        files.add(saver.save(game));
+      }
+      saver.close();
+
+      // games saved within the same millisecond must not share a file
+      assertEquals(50, new HashSet<>(files).size());
+      for (int i = 0; i < games.size(); i++) {
+        String written = new String(Files.readAllBytes(files.get(i).toPath()), Charset.defaultCharset());
+        assertEquals(new SGFbuilder().buildSGF(games.get(i)), written);
+      }
+      assertEquals(50, saver.getSaved());
+      assertEquals(0, saver.getQueueDepth());
+      assertEquals(0, saver.getDropped());
+    }
+  }
+
+  @Test
+  public void testDropsAfterClose() throws Exception {
+    GameSaver saver = new GameSaver(folder.getRoot(), 1, GameSaver.Sync.NEVER);
+    saver.close();
+    assertNull(saver.save(new Game("Leela", "Leela", 0, 7.5f)));
+    assertEquals(1, saver.getDropped());
+    assertEquals(0, folder.getRoot().list().length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNeedsSomewhereToSave() {
+    new GameSaver(null, null, 1, GameSaver.Sync.NEVER);
+  }
+
+  @Test
+  public void testCloseWhenInterrupted() throws Exception {
+    GameSaver saver = new GameSaver(folder.getRoot(), 1, GameSaver.Sync.NEVER);
+    Thread.currentThread().interrupt();
+    try {
+      saver.close();
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+    assertNull(saver.save(new Game("Leela", "Leela", 0, 7.5f)));
+  }
+}
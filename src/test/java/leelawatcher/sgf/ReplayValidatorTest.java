@@ -0,0 +1,89 @@
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Game;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayValidatorTest {
+
+  // A ko: black at cr captures the white stone at br, which white could
+  // retake at once
+  private static final String KO = "(;AB[bq][ar][bs]AW[br][cq][dr][cs];B[cr]";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testProblems() throws Exception {
+    File dir = folder.newFolder();
+    write(new File(dir, "a-legal.sgf"), KO + ";W[dd];B[pp])");
+    write(new File(dir, "b-ko.sgf"), KO + ";W[br])");
+    // after both pass white's retake repeats the position after the setup
+    write(new File(dir, "c-superko.sgf"), KO + ";W[];B[];W[br])");
+    write(new File(dir, "d-occupied.sgf"), "(;B[dd];W[dd])");
+    write(new File(dir, "e-self-capture.sgf"), "(;AW[ab][ba];B[aa])");
+    write(new File(dir, "f-out-of-turn.sgf"), "(;W[dd])");
+    write(new File(dir, "g-unreadable.sgf"), "(;B[dd]");
+
+    ReplayValidator.Report report = new ReplayValidator(3).validate(dir);
+    assertEquals(7, report.getFiles());
+    assertEquals(1, report.getGames());
+    assertEquals(3, report.getMoves());
+    assertEquals(1, report.getBlackCaptures());
+    assertEquals(0, report.getWhiteCaptures());
+    for (ReplayValidator.Problem problem : ReplayValidator.Problem.values()) {
+      assertEquals(problem.name(), 1, report.getCount(problem));
+    }
+    assertEquals(Arrays.asList(
+        "b-ko.sgf: move 2 (B2) is illegal: ko",
+        "c-superko.sgf: move 4 (B2) is illegal: superko",
+        "d-occupied.sgf: move 2 (D16) is illegal: occupied",
+        "e-self-capture.sgf: move 1 (A19) is illegal: self capture",
+        "f-out-of-turn.sgf: move 1 (D16) is illegal: out of turn"),
+        report.getProblems().subList(0, 5));
+    assertTrue(report.getProblems().get(5).startsWith("g-unreadable.sgf: "));
+    assertTrue(report.toString(), report.toString().contains("Captures: 1 by black, 0 by white"));
+  }
+
+  /**
+   * Enough games to be split between threads must all be counted, and
+   * their problems listed in the order of the files.
+   */
+  @Test
+  public void testManyFiles() throws Exception {
+    File dir = folder.newFolder();
+    Game game = new Game("Leela", "Leela", 0, 7.5f);
+    game.doMove(3, 3);
+    game.doMove(15, 15);
+    String sgf = new SGFbuilder().buildSGF(game);
+    for (int i = 0; i < 200; i++) {
+      write(new File(dir, String.format("%03d.sgf", i)), i % 50 == 7 ? "(;B[dd];W[dd])" : sgf);
+    }
+    ReplayValidator.Report report = new ReplayValidator(4).validate(dir);
+    assertEquals(200, report.getFiles());
+    assertEquals(196, report.getGames());
+    assertEquals(392, report.getMoves());
+    assertEquals(4, report.getCount(ReplayValidator.Problem.OCCUPIED));
+    assertEquals(Arrays.asList(
+        "007.sgf: move 2 (D16) is illegal: occupied",
+        "057.sgf: move 2 (D16) is illegal: occupied",
+        "107.sgf: move 2 (D16) is illegal: occupied",
+        "157.sgf: move 2 (D16) is illegal: occupied"), report.getProblems());
+  }
+
+  private static void write(File file, String text) throws IOException {
+    try (Writer out = new FileWriter(file)) {
+      out.write(text);
+    }
+  }
+}
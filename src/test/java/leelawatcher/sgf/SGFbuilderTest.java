@@ -0,0 +1,129 @@
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.Move;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SGFbuilderTest {
+
+  private final SGFbuilder builder = new SGFbuilder();
+
+  @Test
+  public void testGame() throws Exception {
+    Game game = new Game("Leela", "Leela", 0, 7.5f);
+    game.doMove(3, 3);
+    game.doMove(15, 15);
+    game.doMove(Move.PASS, Move.PASS);
+    String sgf = builder.buildSGF(game);
+    assertTrue(sgf, sgf.endsWith(";B[dp];W[pd];B[  ])\n"));
+    assertEquals(legacyMoves(game.movesRoot()), builder.SGFprintMoves(game.movesRoot()));
+
+    StringWriter out = new StringWriter();
+    builder.writeSGF(game, out);
+    assertEquals(sgf, out.toString());
+  }
+
+  @Test
+  public void testEmptyTree() {
+    Move root = new Move();
+    assertEquals(legacyMoves(root), builder.SGFprintMoves(root));
+  }
+
+  @Test
+  public void testVariations() {
+    Move root = new Move();
+    Move first = new Move(3, 3, Move.MOVE_BLACK, root);
+    Move reply = new Move(15, 15, Move.MOVE_WHITE, first);
+    new Move(15, 3, Move.MOVE_BLACK, reply);
+    Move alternative = new Move(3, 15, Move.MOVE_WHITE, first);
+    alternative.setComment("nested");
+    new Move(2, 2, Move.MOVE_BLACK, alternative);
+    new Move(16, 16, Move.MOVE_BLACK, alternative);
+    new Move(9, 9, Move.MOVE_WHITE, first);
+    new Move(10, 10, Move.MOVE_BLACK, root);
+
+    String sgf = builder.SGFprintMoves(root);
+    assertEquals("(;B[dp](;W[pd];B[pp])(;W[dd]C[nested](;B[cq])(;B[qc]))(;W[jj]))(;B[ki])", sgf);
+    assertEquals(legacyMoves(root), sgf);
+  }
+
+  @Test
+  public void testSetup() {
+    Move root = new Move();
+    Move setup = new Move(root);
+    setup.setupBlack(3, 3);
+    setup.setupBlack(15, 15);
+    setup.setupWhite(3, 15);
+    setup.setupEmpty(9, 9);
+    setup.setComment("handicap");
+    new Move(15, 3, Move.MOVE_WHITE, setup);
+    assertEquals(legacyMoves(root), builder.SGFprintMoves(root));
+  }
+
+  /**
+   * Random trees must come out exactly as they did when each move was
+   * converted with {@link Move#toString()} by a recursive walk.
+   */
+  @Test
+  public void testRandomTrees() {
+    Random random = new Random(11);
+    for (int tree = 0; tree < 50; tree++) {
+      Move root = new Move();
+      grow(root, Move.MOVE_BLACK, random, 0);
+      assertEquals(legacyMoves(root), builder.SGFprintMoves(root));
+    }
+  }
+
+  /**
+   * Games far longer than any real one must not exhaust the stack.
+   */
+  @Test
+  public void testLongGame() {
+    Move root = new Move();
+    Move move = root;
+    for (int i = 0; i < 200_000; i++) {
+      move = new Move(i % 19, i / 19 % 19, i % 2 == 0 ? Move.MOVE_BLACK : Move.MOVE_WHITE, move);
+    }
+    assertEquals(200_000 * ";B[aa]".length(), builder.SGFprintMoves(root).length());
+  }
+
+  private static void grow(Move parent, char color, Random random, int depth) {
+    int children = depth > 6 ? 0 : random.nextInt(depth == 0 ? 3 : 4);
+    for (int i = 0; i < children; i++) {
+      Move child = new Move(random.nextInt(19), random.nextInt(19), color, parent);
+      if (random.nextInt(5) == 0) {
+        child.setComment("c" + depth);
+      }
+      grow(child, color == Move.MOVE_BLACK ? Move.MOVE_WHITE : Move.MOVE_BLACK, random, depth + 1);
+    }
+  }
+
+  /**
+   * The recursive conversion that <code>SGFbuilder</code> used before it
+   * wrote to a <code>Writer</code>.
+   */
+  private static String legacyMoves(Move aMove) {
+    String tmp = "";
+    int numChild = aMove.numChildren();
+    for (int i = 0; i < numChild; i++) {
+      if ((i == 0) && !aMove.isRoot()) {
+        tmp += ";";
+        tmp += aMove;
+      }
+      if (numChild > 1)
+        tmp += "(";
+      tmp += legacyMoves(aMove.next(i));
+      if (numChild > 1)
+        tmp += ")";
+    }
+    if (numChild == 0)
+      tmp += ";" + aMove;
+    return tmp;
+  }
+}
@@ -0,0 +1,194 @@
+package leelawatcher.sgf;
+
+import leelawatcher.goboard.Board;
+import leelawatcher.goboard.Game;
+import leelawatcher.goboard.IllegalMoveException;
+import leelawatcher.goboard.Move;
+import leelawatcher.goboard.Position;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SGFparserTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final SGFbuilder builder = new SGFbuilder();
+  private final SGFparser parser = new SGFparser();
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Game game = new Game("Leela", "Leela Zero", 0, 7.5f);
+    game.setWRank(3);
+    game.setGameResult("W+R");
+    game.doMove(3, 3);
+    game.doMove(15, 15);
+    game.doMove(Move.PASS, Move.PASS);
+    game.doMove(16, 2);
+    String sgf = builder.buildSGF(game);
+
+    Game read = parse(sgf);
+    assertEquals(sgf, builder.buildSGF(read));
+    assertEquals("Leela Zero", read.getBName());
+    assertEquals(7.5f, read.getKomi(), 0);
+    assertTrue(read.movesRoot().next().next().next().isPass());
+  }
+
+  @Test
+  public void testVariations() throws Exception {
+    Game game = new Game("White", "Black", 0, 0);
+    Move root = game.movesRoot();
+    Move first = new Move(3, 3, Move.MOVE_BLACK, root);
+    Move reply = new Move(15, 15, Move.MOVE_WHITE, first);
+    new Move(15, 3, Move.MOVE_BLACK, reply);
+    Move alternative = new Move(3, 15, Move.MOVE_WHITE, first);
+    alternative.setComment("nested");
+    new Move(2, 2, Move.MOVE_BLACK, alternative);
+    new Move(16, 16, Move.MOVE_BLACK, alternative);
+    new Move(9, 9, Move.MOVE_WHITE, first);
+    new Move(10, 10, Move.MOVE_BLACK, root);
+
+    Game read = parse(builder.buildSGF(game));
+    assertEquals(builder.SGFprintMoves(root), builder.SGFprintMoves(read.movesRoot()));
+    assertEquals("nested", read.movesRoot().next().next(1).getComment());
+  }
+
+  @Test
+  public void testSetupAndEscapes() throws Exception {
+    Game game = parse("(;FF[4]SZ[19]PB[Black \\] \\\\]C[root]\n"
+        + ";AB[aa:bb][ss]AW[cc]AE[ee]PL[W]C[soft\\\nbreak];W[dd]C[x]\n"
+        + ";B[];W[tt])");
+    assertEquals("Black ] \\", game.getBName());
+    assertEquals("root", game.movesRoot().getComment());
+    Move setup = game.movesRoot().next();
+    assertTrue(setup.isSetup());
+    assertEquals("softbreak", setup.getComment());
+    assertEquals(Move.MOVE_WHITE, setup.getColorNextMove());
+    assertEquals(1, setup.getSetupInfo()[0].size());
+    assertEquals(5, setup.getSetupInfo()[1].size());
+    assertEquals(1, setup.getSetupInfo()[2].size());
+    Move white = setup.next();
+    assertTrue(white.isWhite());
+    assertEquals(3, white.getX());
+    assertEquals(15, white.getY());
+    assertTrue(white.next().isPass());
+    assertTrue(white.next().next().isPass());
+  }
+
+  @Test
+  public void testMalformed() {
+    String[] bad = {"", ";B[aa]", "(;B[aa]", "(;B[a])", "(;B[aa]W[bb])", "(;B[aa];B[bb])",
+        "(;SZ[9];B[jj])", "(;C[unterminated)", "(;B)", "(;SZ[x])", "(;B[aa]?)"};
+    for (String sgf : bad) {
+      try {
+        parse(sgf);
+        fail("Parsed " + sgf);
+      } catch (IOException expected) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testLongGame() throws Exception {
+    StringBuilder sgf = new StringBuilder("(;SZ[19]");
+    for (int i = 0; i < 100000; i++) {
+      sgf.append(";B[aa];W[sb]");
+    }
+    sgf.append(')');
+    Move move = parse(sgf.toString()).movesRoot();
+    int moves = 0;
+    while (move.numChildren() > 0) {
+      move = move.next();
+      moves++;
+    }
+    assertEquals(200000, moves);
+  }
+
+  @Test
+  public void testReplay() throws Exception {
+    // white stones at dp and ep are captured when black fills their last
+    // liberty at fp
+    Game game = parse("(;SZ[19]KM[6.5]AB[cp][dq][eq][do][eo]AW[dp][ep]"
+        + ";W[pd];B[fp]C[capture];W[qq])");
+    Board board = new Board();
+    board.replay(game);
+    assertEquals(6.5f, board.getGame().getKomi(), 0);
+    assertEquals(2, board.getBlackHasCap());
+    Position position = board.getCurrPos();
+    assertTrue(position.blackAt(2, 3));
+    assertFalse(position.stoneAt(3, 3));
+    assertTrue(position.whiteAt(15, 15));
+    assertFalse(board.isWhiteMove());
+
+    Game replayed = parse(builder.buildSGF(board.getGame()));
+    Board again = new Board(true);
+    again.replay(replayed);
+    assertEquals(2, again.getBlackHasCap());
+    assertEquals(board.getCurrPos().getHash(), again.getCurrPos().getHash());
+  }
+
+  @Test
+  public void testReplaySetupTwice() throws Exception {
+    Board board = new Board();
+    board.replay(parse("(;AB[dd];AW[dd];B[pp])"));
+    assertTrue(board.getCurrPos().whiteAt(3, 15));
+    assertFalse(board.getCurrPos().blackAt(3, 15));
+  }
+
+  @Test(expected = IllegalMoveException.class)
+  public void testReplayIllegal() throws Exception {
+    new Board().replay(parse("(;B[dd];W[dd])"));
+  }
+
+  @Test
+  public void testImport() throws Exception {
+    File dir = folder.newFolder();
+    Game game = new Game("Leela", "Leela", 0, 7.5f);
+    game.doMove(3, 3);
+    game.doMove(15, 15);
+    write(new File(dir, "a.sgf"), builder.buildSGF(game));
+    write(new File(dir, "b.SGF"), builder.buildSGF(game));
+    write(new File(dir, "broken.sgf"), "(;B[dd]");
+    write(new File(dir, "illegal.sgf"), "(;B[dd];W[dd])");
+    write(new File(dir, "notes.txt"), "not a game");
+
+    SGFImporter importer = new SGFImporter(2);
+    int[] imported = new int[1];
+    importer.setGameImportedListener(board -> {
+      synchronized (imported) {
+        imported[0]++;
+      }
+    });
+    assertEquals(4, importer.importDirectory(dir));
+    assertEquals(4, importer.getFiles());
+    assertEquals(2, importer.getGames());
+    assertEquals(2, imported[0]);
+    assertEquals(4, importer.getMoves());
+    assertEquals(1, importer.getUnreadable());
+    assertEquals(1, importer.getIllegal());
+    assertTrue(importer.report(), importer.report().startsWith("Imported 2 of 4 sgf files"));
+  }
+
+  private Game parse(String sgf) throws IOException {
+    return parser.parse(new StringReader(sgf));
+  }
+
+  private static void write(File file, String text) throws IOException {
+    try (Writer out = new FileWriter(file)) {
+      out.write(text);
+    }
+  }
+}
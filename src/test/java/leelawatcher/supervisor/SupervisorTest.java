@@ -0,0 +1,114 @@
+package leelawatcher.supervisor;
+
+import leelawatcher.parser.GameEventListener;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SupervisorTest {
+
+  private static final String GAME =
+      "Infinite thinking time set.\n 1 (B Q16) 2 (W D4) 3 (B pass)\n 4 (W resign)\nGame has ended.\n";
+
+  @Test
+  public void testFollowsLogs() throws IOException, InterruptedException {
+    File first = File.createTempFile("autogtp", ".log");
+    File second = File.createTempFile("autogtp", ".log");
+    first.deleteOnExit();
+    second.deleteOnExit();
+    append(first, GAME + GAME);
+    append(second, GAME);
+
+    Supervisor supervisor = new Supervisor(1);
+    Semaphore firstEnded = new Semaphore(0);
+    Semaphore secondEnded = new Semaphore(0);
+    supervisor.attach("first", first).getParser().addGameEventListener(ended(firstEnded));
+    supervisor.attach("second", second).getParser().addGameEventListener(ended(secondEnded));
+    try {
+      supervisor.start();
+      // a game only ends when the next one is set up
+      assertTrue(firstEnded.tryAcquire(1, 10, TimeUnit.SECONDS));
+      assertEquals(0, secondEnded.availablePermits());
+
+      // output appended later is picked up
+      append(second, GAME);
+      assertTrue(secondEnded.tryAcquire(1, 10, TimeUnit.SECONDS));
+      append(first, GAME);
+      assertTrue(firstEnded.tryAcquire(1, 10, TimeUnit.SECONDS));
+    } finally {
+      supervisor.stop();
+    }
+  }
+
+  @Test
+  public void testLaunchedInstancesFinish() throws IOException, InterruptedException {
+    File log = File.createTempFile("autogtp", ".log");
+    log.deleteOnExit();
+    append(log, GAME + GAME + GAME);
+
+    Supervisor supervisor = new Supervisor(2);
+    CountDownLatch ended = new CountDownLatch(4);
+    for (int i = 0; i < 2; i++) {
+      ProcessBuilder cat = new ProcessBuilder("cat", log.getPath()).redirectErrorStream(true);
+      supervisor.launch("cat-" + i, cat).getParser().addGameEventListener(new GameEventListener() {
+        @Override
+        public void gameEnded() {
+          ended.countDown();
+        }
+      });
+    }
+    supervisor.start();
+    supervisor.awaitTermination();
+    assertEquals(0, ended.getCount());
+  }
+
+  @Test
+  public void testFailedInstanceIsKilled() throws IOException, InterruptedException {
+    File marker = new File(File.createTempFile("autogtp", ".log").getPath() + ".done");
+    marker.deleteOnExit();
+    String script = "printf '" + GAME.replace("\n", "\\n") + "'; sleep 1; touch " + marker.getPath();
+
+    Supervisor supervisor = new Supervisor(1);
+    ProcessBuilder autogtp = new ProcessBuilder("sh", "-c", script).redirectErrorStream(true);
+    supervisor.launch("failing", autogtp).getParser().addGameEventListener(new GameEventListener() {
+      @Override
+      public void gameStarted() {
+        throw new IllegalStateException("listener failed");
+      }
+    });
+    try {
+      supervisor.start();
+      supervisor.awaitTermination();
+      // the process was killed rather than left to finish
+      Thread.sleep(2000);
+      assertFalse(marker.exists());
+    } finally {
+      supervisor.stop();
+    }
+  }
+
+  private static GameEventListener ended(Semaphore semaphore) {
+    return new GameEventListener() {
+      @Override
+      public void gameEnded() {
+        semaphore.release();
+      }
+    };
+  }
+
+  private static void append(File file, String output) throws IOException {
+    try (FileOutputStream out = new FileOutputStream(file, true)) {
+      out.write(output.getBytes(StandardCharsets.ISO_8859_1));
+    }
+  }
+}